@@ -0,0 +1,90 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures one CandidateKernel scan over the starting board of each puzzle, the step
+ * ScanSolver repeats at every node, for the scalar kernel and the Vector API one. The
+ * board is loaded once per trial, and a scan never changes it.
+ *
+ * Needs the Vector module on the classpath and a JDK with jdk.incubator.vector, which
+ * the fork adds. The vector kernel fails the trial rather than quietly falling back.
+ * Like SudokuBenchmark, it reaches the default-package classes through method handles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class CandidateKernelBenchmark {
+
+    @Param({"sudoku9Hardest", "sudoku16ReallyHard", "sudoku25Killer", "sudokuEmpty25", "sudoku36Hard"})
+    public String puzzle;
+
+    @Param({"ScalarCandidateKernel", "VectorCandidateKernel"})
+    public String kernel;
+
+    private MethodHandle fewest;
+    private Object instance;
+    private Object board;
+
+    @Setup(Level.Trial)
+    public void load() throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        Class<?> sudoku = Class.forName("Sudoku");
+        Class<?> kernelClass = Class.forName("CandidateKernel");
+        Class<?> boardClass = Class.forName("ScanBoard");
+        MethodHandle readBoard = lookup.findStatic(sudoku, "readBoard", MethodType.methodType(int[][].class, File.class));
+
+        File file = new File(System.getProperty("sudoku.data", "Data"), puzzle + ".txt");
+        if (!file.isFile()) throw new FileNotFoundException("No puzzle named " + puzzle + " at " + file.getAbsolutePath());
+        int[][] vals = (int[][]) readBoard.invoke(file);
+
+        board = lookup.findConstructor(boardClass, MethodType.methodType(void.class, int.class)).invoke(vals.length);
+        boolean loaded = (boolean) lookup.findVirtual(boardClass, "load", MethodType.methodType(boolean.class, int[][].class))
+                .invoke(board, vals);
+        if (!loaded) throw new IllegalStateException(puzzle + " has clashing givens");
+
+        instance = Class.forName(kernel).getDeclaredConstructor().newInstance();
+        fewest = lookup.findVirtual(kernelClass, "fewest", MethodType.methodType(int.class, boardClass))
+                .asType(MethodType.methodType(int.class, Object.class, Object.class));
+    }
+
+    @Benchmark
+    public int scan() throws Throwable {
+        return (int) fewest.invokeExact(instance, board);
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(CandidateKernelBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
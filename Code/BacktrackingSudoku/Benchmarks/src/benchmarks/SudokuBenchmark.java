@@ -0,0 +1,109 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures how long each engine takes to solve the puzzles in Data, without the file
+ * reading, console echo and Output/ writing that solveFromFile does around the solve.
+ * Every puzzle is read once per trial; each invocation only copies the board into a
+ * preallocated work array and solves it.
+ *
+ * The default puzzle list leaves out the boards that take minutes to hours on the
+ * default engines (sudoku16Medium for row-major search, sudoku25New, sudoku36Hard).
+ * Pick any puzzle or engine with -p, e.g. -p puzzle=sudoku36Hard -p engine=DANCING_LINKS.
+ * Run from the BacktrackingSudoku directory, or point -Dsudoku.data at the Data folder.
+ *
+ * JMH needs benchmarks in a named package and the solver lives in the default package,
+ * which cannot be imported, so the solver is looked up once through method handles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SudokuBenchmark {
+
+    @Param({"sudoku9Easy", "sudoku9Empty", "sudoku9Hard", "sudoku9Hardest", "sudoku9Medium", "sudoku9OneSpot",
+            "sudoku9Unsolvable", "sudoku9VeryHard", "sudoku16ReallyHard", "sudokuEmpty16", "sudoku25Killer", "sudokuEmpty25"})
+    public String puzzle;
+
+    @Param({"MRV", "DANCING_LINKS", "SAT"})
+    public String engine;
+
+    private final Map<String, int[][]> puzzles = new HashMap<>();
+    private MethodHandle solve;
+    private Object solver;
+    private int[][] board;
+    private int[][] work;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void load() throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        Class<?> sudoku = Class.forName("Sudoku");
+        Class<?> solverClass = Class.forName("SudokuSolver");
+        Class engineClass = Class.forName("Engine");
+        MethodHandle readBoard = lookup.findStatic(sudoku, "readBoard", MethodType.methodType(int[][].class, File.class));
+
+        File data = new File(System.getProperty("sudoku.data", "Data"));
+        File[] files = data.listFiles((dir, name) -> name.endsWith(".txt"));
+        if (files == null) throw new FileNotFoundException("No puzzles in " + data.getAbsolutePath());
+        for (File file : files) {
+            puzzles.put(file.getName().replace(".txt", ""), (int[][]) readBoard.invoke(file));
+        }
+        board = puzzles.get(puzzle);
+        if (board == null) throw new FileNotFoundException("No puzzle named " + puzzle + " in " + data.getAbsolutePath());
+        work = new int[board.length][board.length];
+
+        solver = lookup.findConstructor(solverClass, MethodType.methodType(void.class, engineClass))
+                .invoke(Enum.valueOf(engineClass, engine));
+        solve = lookup.findVirtual(solverClass, "solve", MethodType.methodType(boolean.class, int[][].class))
+                .asType(MethodType.methodType(boolean.class, Object.class, int[][].class));
+    }
+
+    @Benchmark
+    public boolean solve() throws Throwable {
+        for (int i = 0; i < board.length; i++) {
+            System.arraycopy(board[i], 0, work[i], 0, board.length);
+        }
+        return (boolean) solve.invokeExact(solver, work);
+    }
+
+    // Runs the suite with the GC profiler attached; any JMH command line option can be added
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(SudokuBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,280 @@
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * The same search as MrvSolver, visiting the same nodes, but with the board, the candidate
+ * masks and the trail in off-heap memory instead of arrays. The masks take as many longs
+ * per unit as the board needs, so it is not held to the 64x64 of CandidateMasks and runs
+ * 81x81 boards too, and the trail keeps the search off the thread stack.
+ *
+ * Each thread keeps one workspace, grown to the biggest board it has solved and reused
+ * for every puzzle after that by any OffHeapSolver on the thread. Past that point a solve
+ * allocates nothing on the heap: the givens are read from the caller's board and the
+ * solution written back into it, and everything in between stays off-heap. The board is
+ * only written back on success.
+ *
+ * The memory comes from an automatic Arena rather than a confined one. Nothing closes a
+ * confined arena held in a ThreadLocal when a pool thread dies, so its memory would leak;
+ * an automatic one is freed by the garbage collector once the workspace is unreachable,
+ * whether that is after release, after growing, or after the thread is gone.
+ *
+ * Needs JDK 21 run with --enable-preview, where the Foreign Function & Memory API is still
+ * a preview; SudokuSolver loads it by name for Engine.OFF_HEAP.
+ */
+public class OffHeapSolver implements BoardSolver {
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT;
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG;
+    private static final ThreadLocal<Workspace> WORKSPACES = new ThreadLocal<>();
+
+    private final int boardSize;
+
+    public OffHeapSolver(int boardSize) {
+        this.boardSize = boardSize;
+    }
+
+    @Override
+    public boolean solve(int[][] vals, SearchStats stats) {
+        Workspace workspace = WORKSPACES.get();
+        if (workspace == null || workspace.capacity < vals.length) {
+            workspace = new Workspace(Math.max(boardSize, vals.length));
+            WORKSPACES.set(workspace);
+        }
+        return workspace.solve(vals, stats);
+    }
+
+    // Drops the current thread's off-heap memory, which the garbage collector then frees;
+    // its next solve allocates it again
+    public static void release() {
+        WORKSPACES.remove();
+    }
+
+    // Bytes of off-heap memory the current thread holds
+    public static long reserved() {
+        Workspace workspace = WORKSPACES.get();
+        return workspace == null ? 0 : workspace.bytes;
+    }
+
+    // One thread's memory, laid out for boards up to capacity x capacity. A smaller board
+    // uses the front of every segment, with strides worked out from its own size.
+    private static class Workspace {
+
+        private final Arena arena = Arena.ofAuto();
+        private final int capacity;
+        private long bytes;
+        // Cell values, i * n + j
+        private final MemorySegment values;
+        // Empty cells as i * n + j; cells[depth..emptyCount) are still unassigned
+        private final MemorySegment cells;
+        private final MemorySegment rowEmpty;
+        private final MemorySegment colEmpty;
+        private final MemorySegment boxEmpty;
+        // Used values, words longs per row, column and box; value v is bit (v - 1)
+        private final MemorySegment rows;
+        private final MemorySegment cols;
+        private final MemorySegment boxes;
+        private final MemorySegment full;
+        // The trail: values not tried yet (words longs per depth) and the one placed now
+        private final MemorySegment remaining;
+        private final MemorySegment placed;
+
+        private int n;
+        private int partitionSize;
+        private int words;
+        private int emptyCount;
+
+        private Workspace(int capacity) {
+            this.capacity = capacity;
+            int cellCount = capacity * capacity;
+            int maxWords = (capacity + 63) >>> 6;
+            values = ints(cellCount);
+            cells = ints(cellCount);
+            placed = ints(cellCount);
+            rowEmpty = ints(capacity);
+            colEmpty = ints(capacity);
+            boxEmpty = ints(capacity);
+            rows = longs((long) capacity * maxWords);
+            cols = longs((long) capacity * maxWords);
+            boxes = longs((long) capacity * maxWords);
+            full = longs(maxWords);
+            remaining = longs((long) cellCount * maxWords);
+        }
+
+        private MemorySegment ints(long count) {
+            bytes += count * INT.byteSize();
+            return arena.allocate(count * INT.byteSize(), INT.byteAlignment());
+        }
+
+        private MemorySegment longs(long count) {
+            bytes += count * LONG.byteSize();
+            return arena.allocate(count * LONG.byteSize(), LONG.byteAlignment());
+        }
+
+        private boolean solve(int[][] vals, SearchStats stats) {
+            if (!load(vals)) return false;
+            int depth = 0;
+            boolean entering = true;
+            while (true) {
+                if (entering) {
+                    // Every empty cell has a value, so it is solved
+                    if (depth == emptyCount) break;
+                    if (stats != null) stats.node(depth);
+                    if (!choose(depth)) {
+                        if (stats != null) stats.backtrack(depth);
+                        if (--depth < 0) return false;
+                        entering = false;
+                        continue;
+                    }
+                }
+                int cell = cells.getAtIndex(INT, depth);
+                int i = cell / n;
+                int j = cell % n;
+                int b = box(i, j);
+                // Take back whatever we tried here last time
+                int last = placed.getAtIndex(INT, depth);
+                if (last != 0) flip(i, j, b, last);
+                int v = nextValue(depth);
+                if (v == 0) {
+                    // Nothing left to try here, so we backtrack
+                    values.setAtIndex(INT, cell, 0);
+                    placed.setAtIndex(INT, depth, 0);
+                    count(i, j, b, 1);
+                    if (stats != null) stats.backtrack(depth);
+                    if (--depth < 0) return false;
+                    entering = false;
+                    continue;
+                }
+                values.setAtIndex(INT, cell, v);
+                placed.setAtIndex(INT, depth, v);
+                flip(i, j, b, v);
+                depth++;
+                entering = true;
+            }
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    vals[i][j] = values.getAtIndex(INT, i * n + j);
+                }
+            }
+            return true;
+        }
+
+        // Fills everything in from the givens; false if two of them clash
+        private boolean load(int[][] vals) {
+            n = vals.length;
+            partitionSize = (int) Math.sqrt(n);
+            words = (n + 63) >>> 6;
+            for (int w = 0; w < words; w++) {
+                int bits = Math.min(64, n - w * 64);
+                full.setAtIndex(LONG, w, bits == 64 ? -1L : (1L << bits) - 1);
+            }
+            for (int x = 0; x < n * words; x++) {
+                rows.setAtIndex(LONG, x, 0);
+                cols.setAtIndex(LONG, x, 0);
+                boxes.setAtIndex(LONG, x, 0);
+            }
+            for (int x = 0; x < n; x++) {
+                rowEmpty.setAtIndex(INT, x, 0);
+                colEmpty.setAtIndex(INT, x, 0);
+                boxEmpty.setAtIndex(INT, x, 0);
+            }
+            emptyCount = 0;
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    int v = vals[i][j];
+                    int b = box(i, j);
+                    values.setAtIndex(INT, i * n + j, v);
+                    if (v == 0) {
+                        cells.setAtIndex(INT, emptyCount++, i * n + j);
+                        count(i, j, b, 1);
+                        continue;
+                    }
+                    if (v < 0 || v > n) return false;
+                    int w = (v - 1) >>> 6;
+                    long bit = 1L << (v - 1);
+                    if (((used(rows, i, w) | used(cols, j, w) | used(boxes, b, w)) & bit) != 0) return false;
+                    flip(i, j, b, v);
+                }
+            }
+            return true;
+        }
+
+        // Moves the most constrained cell to cells[depth] and starts its trail entry;
+        // false if some empty cell has no candidates left
+        private boolean choose(int depth) {
+            int best = -1;
+            int bestCount = Integer.MAX_VALUE;
+            int bestDegree = -1;
+            for (int k = depth; k < emptyCount; k++) {
+                int cell = cells.getAtIndex(INT, k);
+                int i = cell / n;
+                int j = cell % n;
+                int b = box(i, j);
+                int count = 0;
+                for (int w = 0; w < words; w++) {
+                    count += Long.bitCount(candidates(i, j, b, w));
+                }
+                if (count == 0) return false;
+                if (count > bestCount) continue;
+                int degree = rowEmpty.getAtIndex(INT, i) + colEmpty.getAtIndex(INT, j) + boxEmpty.getAtIndex(INT, b);
+                if (count < bestCount || degree > bestDegree) {
+                    best = k;
+                    bestCount = count;
+                    bestDegree = degree;
+                }
+            }
+
+            int cell = cells.getAtIndex(INT, best);
+            cells.setAtIndex(INT, best, cells.getAtIndex(INT, depth));
+            cells.setAtIndex(INT, depth, cell);
+            int i = cell / n;
+            int j = cell % n;
+            int b = box(i, j);
+            count(i, j, b, -1);
+            for (int w = 0; w < words; w++) {
+                remaining.setAtIndex(LONG, (long) depth * words + w, candidates(i, j, b, w));
+            }
+            placed.setAtIndex(INT, depth, 0);
+            return true;
+        }
+
+        // Takes the smallest value left at this depth off the trail, 0 if there is none
+        private int nextValue(int depth) {
+            long base = (long) depth * words;
+            for (int w = 0; w < words; w++) {
+                long candidates = remaining.getAtIndex(LONG, base + w);
+                if (candidates == 0) continue;
+                remaining.setAtIndex(LONG, base + w, candidates & (candidates - 1));
+                return w * 64 + Long.numberOfTrailingZeros(candidates) + 1;
+            }
+            return 0;
+        }
+
+        private long candidates(int i, int j, int b, int w) {
+            return full.getAtIndex(LONG, w) & ~(used(rows, i, w) | used(cols, j, w) | used(boxes, b, w));
+        }
+
+        private long used(MemorySegment masks, int unit, int w) {
+            return masks.getAtIndex(LONG, (long) unit * words + w);
+        }
+
+        // Marks v used in the row, column and box of (i, j), or unused if it was
+        private void flip(int i, int j, int b, int v) {
+            int w = (v - 1) >>> 6;
+            long bit = 1L << (v - 1);
+            rows.setAtIndex(LONG, (long) i * words + w, used(rows, i, w) ^ bit);
+            cols.setAtIndex(LONG, (long) j * words + w, used(cols, j, w) ^ bit);
+            boxes.setAtIndex(LONG, (long) b * words + w, used(boxes, b, w) ^ bit);
+        }
+
+        private void count(int i, int j, int b, int delta) {
+            rowEmpty.setAtIndex(INT, i, rowEmpty.getAtIndex(INT, i) + delta);
+            colEmpty.setAtIndex(INT, j, colEmpty.getAtIndex(INT, j) + delta);
+            boxEmpty.setAtIndex(INT, b, boxEmpty.getAtIndex(INT, b) + delta);
+        }
+
+        private int box(int i, int j) {
+            return (i / partitionSize) * partitionSize + j / partitionSize;
+        }
+    }
+}
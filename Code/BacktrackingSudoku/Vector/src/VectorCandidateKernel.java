@@ -0,0 +1,67 @@
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * CandidateKernel on the Vector API. For a run of cells in one row it loads the column
+ * and box masks side by side, ORs in the row, and counts the candidates of every lane
+ * with one BIT_COUNT. The open-peer counts come in the same way, so a 256-bit machine
+ * scores four cells per step and a 512-bit one eight. Filled cells are blended out
+ * before the lanes are reduced to their minimum, and the cells left over at the end of
+ * a row go through the scalar loop.
+ *
+ * Needs JDK 19 or later for BIT_COUNT, and --add-modules jdk.incubator.vector both to
+ * build and to run. CandidateKernel.load falls back to ScalarCandidateKernel otherwise.
+ */
+public class VectorCandidateKernel implements CandidateKernel {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    private static final int SHIFT = Integer.numberOfTrailingZeros(DEGREE_SCALE);
+
+    @Override
+    public int fewest(ScanBoard board) {
+        int boardSize = board.boardSize;
+        long full = board.full;
+        long[] cols = board.cols;
+        long[] bands = board.bands;
+        long[] closed = board.closed;
+        long[] colOpen = board.colOpen;
+        long[] bandOpen = board.bandOpen;
+        int best = -1;
+        long bestScore = Long.MAX_VALUE;
+        int upper = SPECIES.loopBound(boardSize);
+        for (int i = 0; i < boardSize; i++) {
+            long row = board.rows[i];
+            long rowOpen = board.rowOpen[i];
+            LongVector free = LongVector.broadcast(SPECIES, full & ~row);
+            LongVector rowPeers = LongVector.broadcast(SPECIES, rowOpen);
+            int band = board.band(i);
+            int base = i * boardSize;
+            int j = 0;
+            for (; j < upper; j += SPECIES.length()) {
+                LongVector used = LongVector.fromArray(SPECIES, cols, j).or(LongVector.fromArray(SPECIES, bands, band + j));
+                LongVector counts = free.and(used.not()).lanewise(VectorOperators.BIT_COUNT);
+                LongVector peers = rowPeers.add(LongVector.fromArray(SPECIES, colOpen, j)).add(LongVector.fromArray(SPECIES, bandOpen, band + j));
+                LongVector scores = counts.lanewise(VectorOperators.LSHL, SHIFT).sub(peers)
+                        .blend(Long.MAX_VALUE, LongVector.fromArray(SPECIES, closed, base + j).compare(VectorOperators.NE, 0));
+                long min = scores.reduceLanes(VectorOperators.MIN);
+                if (min < bestScore) {
+                    best = base + j + scores.compare(VectorOperators.EQ, min).firstTrue();
+                    bestScore = min;
+                    if (min <= 0) return best;
+                }
+            }
+            for (; j < boardSize; j++) {
+                if (closed[base + j] != 0) continue;
+                long count = Long.bitCount(full & ~(row | cols[j] | bands[band + j]));
+                long score = count * DEGREE_SCALE - (rowOpen + colOpen[j] + bandOpen[band + j]);
+                if (score < bestScore) {
+                    if (score <= 0) return base + j;
+                    best = base + j;
+                    bestScore = score;
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Every variable in the scope takes a different value. Bound variables remove their
+ * value from the others, the constraint fails once fewer values remain than variables
+ * need them, and when there are exactly as many values as variables, a value only one
+ * variable can still take is given to it.
+ */
+public class AllDifferent extends Constraint {
+
+    public AllDifferent(int... scope) {
+        super(scope);
+    }
+
+    @Override
+    public boolean propagate(ConstraintSolver solver) {
+        long taken = 0;
+        for (int x : scope) {
+            if (!solver.isBound(x)) continue;
+            long bit = solver.getDomain(x);
+            if ((taken & bit) != 0) return false;
+            taken |= bit;
+        }
+        long once = 0;
+        long more = 0;
+        long all = taken;
+        int free = 0;
+        for (int x : scope) {
+            if (solver.isBound(x)) continue;
+            if (!solver.restrict(x, ~taken)) return false;
+            long domain = solver.getDomain(x);
+            more |= once & domain;
+            once |= domain;
+            all |= domain;
+            free++;
+        }
+        int values = Long.bitCount(all);
+        if (values < scope.length) return false;
+        // Only when there are exactly as many values as variables must every value be used
+        if (values > scope.length) return true;
+        // Values only one free variable can take; restrict queues this constraint again
+        // when that binds the variable, so its value leaves the rest on the next pass
+        once &= ~more & ~taken;
+        if (Long.bitCount(once) > free) return false;
+        while (once != 0) {
+            long bit = once & -once;
+            once ^= bit;
+            for (int x : scope) {
+                if (solver.isBound(x) || (solver.getDomain(x) & bit) == 0) continue;
+                if (!solver.restrict(x, bit)) return false;
+                break;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,284 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * MRV backtracking with conflict-directed backjumping. Every value ruled out for a cell
+ * is blamed on the earliest search decision that placed the same value in its row,
+ * column or partition. When a cell runs out of values, the search jumps straight back
+ * to the latest decision to blame, skipping the unrelated decisions in between, and
+ * hands the rest of the blame to that decision.
+ *
+ * With learning on, every failure whose blame covers at most maxNogoodSize decisions
+ * is also kept as a nogood: that combination of placements is never tried again.
+ */
+public class BackjumpSolver implements BoardSolver {
+
+    public static final int DEFAULT_MAX_NOGOOD_SIZE = 3;
+    public static final int MAX_NOGOODS = 1 << 20;
+
+    private static final int SOLVED = Integer.MAX_VALUE;
+
+    private final int boardSize;
+    private final int maxNogoodSize;
+    private final CandidateMasks masks;
+    // Empty cells as i * boardSize + j; cells[depth..emptyCount) are still unassigned
+    private final int[] cells;
+    private final int[] rowEmpty;
+    private final int[] colEmpty;
+    private final int[] boxEmpty;
+    // Depth of the decision that put value v in a unit, at [unit * boardSize + v - 1], or -1
+    private final int[] rowDepth;
+    private final int[] colDepth;
+    private final int[] boxDepth;
+    // Depth of the decision that filled each cell
+    private final int[] cellDepth;
+    // The decisions to blame for the failures so far at each depth, one bit per depth
+    private final long[][] conflicts;
+    private int emptyCount;
+    // Learnt nogoods as placements cell * boardSize + v - 1, indexed by each placement in them
+    private final ArrayList<int[]> nogoods = new ArrayList<>();
+    private final int[][] nogoodsWith;
+    private final int[] nogoodsWithCount;
+    private SearchStats stats;
+
+    // Backjumping with nogoods of up to DEFAULT_MAX_NOGOOD_SIZE decisions
+    public BackjumpSolver(int boardSize) {
+        this(boardSize, DEFAULT_MAX_NOGOOD_SIZE);
+    }
+
+    // A maxNogoodSize of 0 turns learning off
+    public BackjumpSolver(int boardSize, int maxNogoodSize) {
+        this.boardSize = boardSize;
+        this.maxNogoodSize = maxNogoodSize;
+        this.masks = new CandidateMasks(boardSize);
+        int cellCount = boardSize * boardSize;
+        this.cells = new int[cellCount];
+        this.rowEmpty = new int[boardSize];
+        this.colEmpty = new int[boardSize];
+        this.boxEmpty = new int[boardSize];
+        this.rowDepth = new int[cellCount];
+        this.colDepth = new int[cellCount];
+        this.boxDepth = new int[cellCount];
+        this.cellDepth = new int[cellCount];
+        this.conflicts = new long[cellCount][(cellCount + 63) / 64];
+        this.nogoodsWith = maxNogoodSize > 0 ? new int[cellCount * boardSize][] : null;
+        this.nogoodsWithCount = maxNogoodSize > 0 ? new int[cellCount * boardSize] : null;
+    }
+
+    @Override
+    public boolean solve(int[][] vals, SearchStats stats) {
+        this.stats = stats;
+        if (!masks.load(vals)) return false;
+        emptyCount = 0;
+        Arrays.fill(rowEmpty, 0);
+        Arrays.fill(colEmpty, 0);
+        Arrays.fill(boxEmpty, 0);
+        Arrays.fill(rowDepth, -1);
+        Arrays.fill(colDepth, -1);
+        Arrays.fill(boxDepth, -1);
+        if (maxNogoodSize > 0) {
+            nogoods.clear();
+            Arrays.fill(nogoodsWithCount, 0);
+        }
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                if (vals[i][j] != 0) continue;
+                cells[emptyCount++] = i * boardSize + j;
+                rowEmpty[i]++;
+                colEmpty[j]++;
+                boxEmpty[masks.box(i, j)]++;
+            }
+        }
+        return search(vals, 0) == SOLVED;
+    }
+
+    // Returns SOLVED, or the depth to jump back to (-1 when nothing is left to blame)
+    private int search(int[][] vals, int depth) {
+        if (depth == emptyCount) return SOLVED;
+        if (stats != null) stats.node(depth);
+        long[] conflict = conflicts[depth];
+        Arrays.fill(conflict, 0);
+
+        // Find the most constrained cell, failing straight away on a dead one
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        int bestDegree = -1;
+        for (int k = depth; k < emptyCount; k++) {
+            int i = cells[k] / boardSize;
+            int j = cells[k] % boardSize;
+            int count = Long.bitCount(masks.candidates(i, j));
+            if (count == 0) {
+                blameRuledOut(i, j, conflict);
+                return fail(vals, depth);
+            }
+            if (count > bestCount) continue;
+            int degree = rowEmpty[i] + colEmpty[j] + boxEmpty[masks.box(i, j)];
+            if (count < bestCount || degree > bestDegree) {
+                best = k;
+                bestCount = count;
+                bestDegree = degree;
+            }
+        }
+
+        int cell = cells[best];
+        cells[best] = cells[depth];
+        cells[depth] = cell;
+        int i = cell / boardSize;
+        int j = cell % boardSize;
+        int b = masks.box(i, j);
+        blameRuledOut(i, j, conflict);
+
+        rowEmpty[i]--;
+        colEmpty[j]--;
+        boxEmpty[b]--;
+        cellDepth[cell] = depth;
+        long candidates = masks.candidates(i, j);
+        while (candidates != 0) {
+            long bit = candidates & -candidates;
+            candidates ^= bit;
+            int v = Long.numberOfTrailingZeros(bit) + 1;
+            if (maxNogoodSize > 0 && blameNogoods(vals, cell, v, conflict)) continue;
+            vals[i][j] = v;
+            masks.assign(i, j, v);
+            rowDepth[i * boardSize + v - 1] = depth;
+            colDepth[j * boardSize + v - 1] = depth;
+            boxDepth[b * boardSize + v - 1] = depth;
+            int result = search(vals, depth + 1);
+            if (result == SOLVED) return SOLVED;
+            masks.unassign(i, j, v);
+            rowDepth[i * boardSize + v - 1] = -1;
+            colDepth[j * boardSize + v - 1] = -1;
+            boxDepth[b * boardSize + v - 1] = -1;
+            // The failure below had nothing to do with this cell, so jump over it
+            if (result < depth) {
+                vals[i][j] = 0;
+                rowEmpty[i]++;
+                colEmpty[j]++;
+                boxEmpty[b]++;
+                return result;
+            }
+        }
+        vals[i][j] = 0;
+        rowEmpty[i]++;
+        colEmpty[j]++;
+        boxEmpty[b]++;
+        return fail(vals, depth);
+    }
+
+    // Every value missing from the cell's candidates is blamed on the earliest decision
+    // that placed it in the cell's row, column or partition; givens take no blame
+    private void blameRuledOut(int i, int j, long[] conflict) {
+        int b = masks.box(i, j);
+        long ruledOut = ~masks.candidates(i, j);
+        for (int v = 0; v < boardSize; v++) {
+            if ((ruledOut >>> v & 1) == 0) continue;
+            int culprit = Integer.MAX_VALUE;
+            int d = rowDepth[i * boardSize + v];
+            if (d >= 0) culprit = d;
+            d = colDepth[j * boardSize + v];
+            if (d >= 0 && d < culprit) culprit = d;
+            d = boxDepth[b * boardSize + v];
+            if (d >= 0 && d < culprit) culprit = d;
+            if (culprit != Integer.MAX_VALUE) conflict[culprit >> 6] |= 1L << culprit;
+        }
+    }
+
+    // True if placing v in the cell completes a nogood, whose other decisions are then blamed
+    private boolean blameNogoods(int[][] vals, int cell, int v, long[] conflict) {
+        int placement = cell * boardSize + v - 1;
+        int[] list = nogoodsWith[placement];
+        for (int k = 0; k < nogoodsWithCount[placement]; k++) {
+            int[] nogood = nogoods.get(list[k]);
+            boolean complete = true;
+            for (int p : nogood) {
+                if (p == placement) continue;
+                int c = p / boardSize;
+                if (vals[c / boardSize][c % boardSize] != p % boardSize + 1) {
+                    complete = false;
+                    break;
+                }
+            }
+            if (!complete) continue;
+            for (int p : nogood) {
+                if (p == placement) continue;
+                int d = cellDepth[p / boardSize];
+                conflict[d >> 6] |= 1L << d;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // Jumps back to the latest decision to blame and passes it the rest of the blame
+    private int fail(int[][] vals, int depth) {
+        if (stats != null) stats.backtrack(depth);
+        long[] conflict = conflicts[depth];
+        int target = -1;
+        int blamed = 0;
+        for (int w = conflict.length - 1; w >= 0; w--) {
+            if (conflict[w] == 0) continue;
+            if (target < 0) target = w * 64 + 63 - Long.numberOfLeadingZeros(conflict[w]);
+            blamed += Long.bitCount(conflict[w]);
+        }
+        if (target < 0) return -1;
+        if (blamed <= maxNogoodSize) learn(vals, conflict);
+        long[] into = conflicts[target];
+        for (int w = 0; w <= target >> 6; w++) {
+            into[w] |= conflict[w];
+        }
+        into[target >> 6] &= ~(1L << target);
+        return target;
+    }
+
+    // The blamed decisions are all still on the board
+    private void learn(int[][] vals, long[] conflict) {
+        if (nogoods.size() == MAX_NOGOODS) return;
+        int id = nogoods.size();
+        int[] nogood = new int[maxNogoodSize];
+        int n = 0;
+        for (int w = 0; w < conflict.length; w++) {
+            long bits = conflict[w];
+            while (bits != 0) {
+                int d = w * 64 + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                int cell = cells[d];
+                int placement = cell * boardSize + vals[cell / boardSize][cell % boardSize] - 1;
+                nogood[n++] = placement;
+                int[] list = nogoodsWith[placement];
+                int count = nogoodsWithCount[placement];
+                if (list == null) {
+                    list = new int[4];
+                } else if (count == list.length) {
+                    list = Arrays.copyOf(list, count * 2);
+                }
+                list[count] = id;
+                nogoodsWith[placement] = list;
+                nogoodsWithCount[placement] = count + 1;
+            }
+        }
+        nogoods.add(Arrays.copyOf(nogood, n));
+    }
+
+    // Usage: BackjumpSolver [puzzle files]
+    // Compares node counts of plain MRV backtracking, backjumping and backjumping with nogoods
+    public static void main(String[] args) throws FileNotFoundException {
+        String[] files = args.length > 0 ? args : new String[]{"Data/sudoku16ReallyHard.txt", "Data/sudoku25Killer.txt"};
+        for (String filename : files) {
+            int[][] board = Sudoku.readBoard(new File(filename));
+            System.out.println(filename);
+            BoardSolver[] solvers = {new MrvSolver(board.length), new BackjumpSolver(board.length, 0), new BackjumpSolver(board.length)};
+            String[] names = {"backtracking", "backjumping", "backjumping + nogoods"};
+            for (int s = 0; s < solvers.length; s++) {
+                int[][] vals = new int[board.length][];
+                for (int i = 0; i < board.length; i++) vals[i] = board[i].clone();
+                SearchStats stats = new SearchStats();
+                boolean solved = solvers[s].solve(vals, stats);
+                stats.finish();
+                System.out.printf("  %-22s %10d nodes %10d backtracks %10.1f ms  %s%n", names[s], stats.getNodes(),
+                        stats.getBacktracks(), stats.getTotalNanos() / 1e6, solved ? "solved" : "no solution");
+            }
+        }
+    }
+}
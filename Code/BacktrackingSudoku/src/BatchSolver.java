@@ -0,0 +1,280 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Scanner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves a whole corpus of puzzles. A reader thread streams puzzles from a directory of
+ * Data/*.txt style files, from one file holding many boards back to back, or from a
+ * memory-mapped PuzzleCorpus (a file ending in .corpus) into a bounded queue. A pool of
+ * workers solves them with one shared SudokuSolver, and a single writer thread saves the
+ * solutions to the output directory in the background.
+ * At the end the throughput and the p50/p99 solve latency are reported.
+ */
+public class BatchSolver {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    private static final Puzzle END = new Puzzle(null, null);
+
+    private final SudokuSolver solver;
+    private final int threads;
+    private final int queueCapacity;
+    private final File outputDir;
+    private final boolean echo;
+
+    public BatchSolver(SudokuSolver solver, int threads) {
+        this(solver, threads, DEFAULT_QUEUE_CAPACITY, new File("Output"), false);
+    }
+
+    public BatchSolver(SudokuSolver solver, int threads, int queueCapacity, File outputDir, boolean echo) {
+        this.solver = solver;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.outputDir = outputDir;
+        this.echo = echo;
+    }
+
+    // Solves every puzzle in a directory or a multi-puzzle file
+    public Report run(File input) throws InterruptedException {
+        BlockingQueue<Puzzle> queue = new ArrayBlockingQueue<>(queueCapacity);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        long start = System.nanoTime();
+
+        ArrayList<long[]> perWorker = new ArrayList<>();
+        int read = 0;
+        double seconds;
+        try {
+            ArrayList<Future<long[]>> latencies = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                latencies.add(workers.submit(() -> work(queue, writer)));
+            }
+            try {
+                read = readAll(input, queue);
+            } finally {
+                for (int t = 0; t < threads; t++) {
+                    queue.put(END);
+                }
+            }
+
+            for (Future<long[]> future : latencies) {
+                try {
+                    perWorker.add(future.get());
+                } catch (Exception e) {
+                    throw new IllegalStateException("Batch worker failed", e);
+                }
+            }
+            writer.shutdown();
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            seconds = (System.nanoTime() - start) / 1e9;
+        } finally {
+            workers.shutdownNow();
+            writer.shutdownNow();
+        }
+
+        int solved = 0;
+        long[] all = new long[read];
+        int n = 0;
+        for (long[] worker : perWorker) {
+            // The last slot of each worker's array holds its solved count
+            int count = worker.length - 1;
+            System.arraycopy(worker, 0, all, n, count);
+            n += count;
+            solved += (int) worker[count];
+        }
+        Arrays.sort(all, 0, n);
+        return new Report(n, solved, seconds, percentile(all, n, 0.50), percentile(all, n, 0.99));
+    }
+
+    private int readAll(File input, BlockingQueue<Puzzle> queue) throws InterruptedException {
+        if (input.isFile() && input.getName().endsWith(PuzzleCorpus.EXTENSION)) {
+            return readCorpus(input, queue);
+        }
+        File[] files;
+        if (input.isDirectory()) {
+            files = input.listFiles((dir, name) -> name.endsWith(".txt"));
+            if (files == null) files = new File[0];
+            Arrays.sort(files);
+        } else {
+            files = new File[]{input};
+        }
+        int count = 0;
+        for (File file : files) {
+            try (Scanner scanner = new Scanner(file)) {
+                String base = file.getName().replace(".txt", "");
+                int[][] vals = Sudoku.readBoard(scanner);
+                // Files holding more than one board number their solutions
+                boolean many = scanner.hasNextInt();
+                int index = 1;
+                while (true) {
+                    queue.put(new Puzzle(many ? base + "-" + index : base, vals));
+                    count++;
+                    if (!scanner.hasNextInt()) break;
+                    vals = Sudoku.readBoard(scanner);
+                    index++;
+                }
+            } catch (FileNotFoundException e) {
+                System.out.println("Input file not found: " + file);
+            } catch (RuntimeException e) {
+                System.out.println("Skipping rest of " + file + ": " + e.getMessage());
+            }
+        }
+        return count;
+    }
+
+    private int readCorpus(File input, BlockingQueue<Puzzle> queue) throws InterruptedException {
+        PuzzleCorpus corpus;
+        try {
+            corpus = PuzzleCorpus.open(input);
+        } catch (IOException e) {
+            System.out.println("Cannot read corpus " + input + ": " + e.getMessage());
+            return 0;
+        }
+        String base = input.getName().replace(PuzzleCorpus.EXTENSION, "");
+        for (int index = 0; index < corpus.size(); index++) {
+            queue.put(new Puzzle(base + "-" + (index + 1), corpus.get(index)));
+        }
+        return corpus.size();
+    }
+
+    // Returns the solve latencies in nanoseconds, with the number solved appended
+    private long[] work(BlockingQueue<Puzzle> queue, ExecutorService writer) throws InterruptedException {
+        long[] latencies = new long[64];
+        int n = 0;
+        long solved = 0;
+        while (true) {
+            Puzzle puzzle = queue.take();
+            if (puzzle == END) break;
+            if (echo) {
+                synchronized (System.out) {
+                    System.out.println(puzzle.name + " input:");
+                    Sudoku.printBoard(puzzle.vals);
+                }
+            }
+            long start = System.nanoTime();
+            boolean ok;
+            try {
+                ok = solver.solve(puzzle.vals);
+            } catch (RuntimeException e) {
+                // A board the engine cannot take fails on its own; the worker keeps draining
+                synchronized (System.out) {
+                    System.out.println(puzzle.name + ": solve failed: " + e);
+                }
+                ok = false;
+            }
+            long elapsed = System.nanoTime() - start;
+            if (n == latencies.length) latencies = Arrays.copyOf(latencies, n * 2);
+            latencies[n++] = elapsed;
+            if (!ok) {
+                if (echo) {
+                    synchronized (System.out) {
+                        System.out.println(puzzle.name + ": no solution found.");
+                    }
+                }
+                continue;
+            }
+            solved++;
+            if (echo) {
+                synchronized (System.out) {
+                    System.out.println(puzzle.name + " output:");
+                    Sudoku.printBoard(puzzle.vals);
+                }
+            }
+            writer.execute(() -> write(puzzle));
+        }
+        long[] result = Arrays.copyOf(latencies, n + 1);
+        result[n] = solved;
+        return result;
+    }
+
+    private void write(Puzzle puzzle) {
+        File dest = new File(outputDir, puzzle.name + "Solution.txt");
+        try {
+            Sudoku.writeBoard(dest, puzzle.vals);
+        } catch (IOException e) {
+            System.out.println("Error writing to file " + dest);
+        }
+    }
+
+    private static long percentile(long[] sorted, int n, double p) {
+        if (n == 0) return 0;
+        int index = (int) Math.ceil(p * n) - 1;
+        return sorted[Math.max(0, Math.min(n - 1, index))];
+    }
+
+    private static class Puzzle {
+
+        private final String name;
+        private final int[][] vals;
+
+        private Puzzle(String name, int[][] vals) {
+            this.name = name;
+            this.vals = vals;
+        }
+    }
+
+    public static class Report {
+
+        private final int puzzles;
+        private final int solved;
+        private final double seconds;
+        private final long p50Nanos;
+        private final long p99Nanos;
+
+        public Report(int puzzles, int solved, double seconds, long p50Nanos, long p99Nanos) {
+            this.puzzles = puzzles;
+            this.solved = solved;
+            this.seconds = seconds;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+        }
+
+        public int getPuzzles() {
+            return puzzles;
+        }
+
+        public int getSolved() {
+            return solved;
+        }
+
+        public double getPuzzlesPerSecond() {
+            return seconds > 0 ? puzzles / seconds : 0;
+        }
+
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d puzzles (%d solved) in %.2f s: %.1f puzzles/s, p50 %.3f ms, p99 %.3f ms",
+                    puzzles, solved, seconds, getPuzzlesPerSecond(), p50Nanos / 1e6, p99Nanos / 1e6);
+        }
+    }
+
+    // Usage: BatchSolver <directory or file> [engine] [threads] [--echo]
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length == 0) {
+            System.out.println("Usage: BatchSolver <directory or file> [engine] [threads] [--echo]");
+            return;
+        }
+        Engine engine = args.length > 1 ? Engine.valueOf(args[1]) : Engine.MRV;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        boolean echo = args.length > 3 && args[3].equals("--echo");
+        BatchSolver batch = new BatchSolver(new SudokuSolver(engine), threads, DEFAULT_QUEUE_CAPACITY, new File("Output"), echo);
+        System.out.println(batch.run(new File(args[0])));
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Any relation between two variables, kept arc consistent the AC-2001 way: each value
+ * remembers the last value of the other variable that supported it, and only looks for
+ * a new support when that one has gone. The supports are not undone on backtracking,
+ * since an old one is checked before it is trusted (the AC-3rm variant).
+ */
+public class BinaryConstraint extends Constraint {
+
+    public interface Relation {
+        boolean allows(int a, int b);
+    }
+
+    private final Relation relation;
+    // Last support in y for each value of x, and in x for each value of y; 0 if none yet
+    private final int[] supportInY = new int[65];
+    private final int[] supportInX = new int[65];
+
+    public BinaryConstraint(int x, int y, Relation relation) {
+        super(x, y);
+        this.relation = relation;
+    }
+
+    @Override
+    public boolean propagate(ConstraintSolver solver) {
+        return revise(solver, scope[0], scope[1], supportInY, false)
+                && revise(solver, scope[1], scope[0], supportInX, true);
+    }
+
+    // Removes the values of x with no support left in y
+    private boolean revise(ConstraintSolver solver, int x, int y, int[] support, boolean swapped) {
+        long domainX = solver.getDomain(x);
+        long domainY = solver.getDomain(y);
+        long supported = 0;
+        long rest = domainX;
+        while (rest != 0) {
+            long bit = rest & -rest;
+            rest ^= bit;
+            int a = Long.numberOfTrailingZeros(bit) + 1;
+            int last = support[a];
+            if (last != 0 && (domainY & 1L << (last - 1)) != 0) {
+                supported |= bit;
+                continue;
+            }
+            // Carry on after the old support, then wrap round to the start
+            long after = last == 0 ? domainY : last == 64 ? 0 : domainY & -1L << last;
+            int b = find(a, after, swapped);
+            if (b == 0) b = find(a, domainY & ~after, swapped);
+            if (b != 0) {
+                support[a] = b;
+                supported |= bit;
+            }
+        }
+        return supported == domainX || solver.restrict(x, supported);
+    }
+
+    // The lowest value b in values related to a, or 0 if there is none
+    private int find(int a, long values, boolean swapped) {
+        while (values != 0) {
+            int b = Long.numberOfTrailingZeros(values) + 1;
+            values &= values - 1;
+            if (swapped ? relation.allows(b, a) : relation.allows(a, b)) return b;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Row-major backtracking like Sudoku.solve, but the candidates for each cell come
+ * from incrementally updated row/column/partition bitmasks instead of a fresh
+ * Stack of 1..N that is filtered against the whole row, column and partition.
+ */
+public class BitmaskSolver implements BoardSolver {
+
+    private final int boardSize;
+    private final CandidateMasks masks;
+
+    public BitmaskSolver(int boardSize) {
+        this.boardSize = boardSize;
+        this.masks = new CandidateMasks(boardSize);
+    }
+
+    @Override
+    public boolean solve(int[][] vals, SearchStats stats) {
+        if (!masks.load(vals)) return false;
+        return solve(vals, 0, 0, 0, stats);
+    }
+
+    private boolean solve(int[][] vals, int i, int j, int depth, SearchStats stats) {
+        // If we have done all rows, it is solved
+        if (i == boardSize) return true;
+        // If we have done all cols, we move to the next row
+        if (j == boardSize) return solve(vals, i + 1, 0, depth, stats);
+        // Givens are already in the masks and are never changed
+        if (vals[i][j] != 0) return solve(vals, i, j + 1, depth, stats);
+        if (stats != null) stats.node(depth);
+
+        long candidates = masks.candidates(i, j);
+        while (candidates != 0) {
+            long bit = candidates & -candidates;
+            candidates ^= bit;
+            int v = Long.numberOfTrailingZeros(bit) + 1;
+            vals[i][j] = v;
+            masks.assign(i, j, v);
+            if (solve(vals, i, j + 1, depth + 1, stats)) return true;
+            masks.unassign(i, j, v);
+        }
+        // Nothing left to try here, so we backtrack
+        vals[i][j] = 0;
+        if (stats != null) stats.backtrack(depth);
+        return false;
+    }
+}
@@ -0,0 +1,13 @@
+/**
+ * A solving engine that fills in the blanks of a board in place.
+ */
+public interface BoardSolver {
+
+    // Returns true and leaves the solution in vals, or false if there is none.
+    // Records into stats as it searches unless stats is null.
+    boolean solve(int[][] vals, SearchStats stats);
+
+    default boolean solve(int[][] vals) {
+        return solve(vals, null);
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * Finds the cell to branch on for a search that rescans the whole board at every node:
+ * the open cell with the fewest candidates, and among those the one with the most open
+ * cells in its row, column and box, like MrvSolver. Remaining ties go to the first cell
+ * in row-major order. On 25x25 and 36x36 boards that scan is most of the work per node,
+ * which is why the board comes as a flat ScanBoard an implementation can stream through
+ * several cells at a time.
+ *
+ * A cell scores candidates * DEGREE_SCALE minus its open peers (the cell itself
+ * included), and the lowest score wins. Peers never reach DEGREE_SCALE, so a score of
+ * zero or below means a cell with no candidates left.
+ *
+ * load picks the Vector API kernel when it was built and the JVM runs with
+ * --add-modules jdk.incubator.vector, and the scalar one otherwise.
+ */
+public interface CandidateKernel {
+
+    int DEGREE_SCALE = 256;
+
+    // Row-major index of the chosen cell, or -1 if every cell is filled. A chosen cell
+    // with no candidates means the board is dead; implementations may return the first
+    // such cell as soon as they see it.
+    int fewest(ScanBoard board);
+
+    static CandidateKernel load() {
+        try {
+            return (CandidateKernel) Class.forName("VectorCandidateKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Not built, an older JVM, or the incubator module not added
+            return new ScalarCandidateKernel();
+        }
+    }
+}
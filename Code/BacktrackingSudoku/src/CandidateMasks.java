@@ -0,0 +1,81 @@
+/**
+ * Keeps track of which values are already used in every row, column and partition
+ * of a board as one long per unit, so the candidates for a cell are a couple of
+ * ORs and a NOT instead of a scan over its row, column and partition.
+ * Value v is stored as bit (v - 1), which limits the masks to boards up to 64x64.
+ */
+public class CandidateMasks {
+
+    public static final int MAX_SIZE = 64;
+
+    private final int boardSize;
+    private final int partitionSize;
+    private final long full;
+    private final long[] rows;
+    private final long[] cols;
+    private final long[] boxes;
+
+    public CandidateMasks(int boardSize) {
+        if (boardSize < 1 || boardSize > MAX_SIZE) {
+            throw new IllegalArgumentException("Candidate masks only support boards up to " + MAX_SIZE + "x" + MAX_SIZE);
+        }
+        this.boardSize = boardSize;
+        this.partitionSize = (int) Math.sqrt(boardSize);
+        this.full = boardSize == 64 ? -1L : (1L << boardSize) - 1;
+        this.rows = new long[boardSize];
+        this.cols = new long[boardSize];
+        this.boxes = new long[boardSize];
+    }
+
+    // Clears the masks and fills them from the givens on the board.
+    // Returns false if two givens already clash, in which case the board has no solution.
+    public boolean load(int[][] vals) {
+        for (int x = 0; x < boardSize; x++) {
+            rows[x] = 0;
+            cols[x] = 0;
+            boxes[x] = 0;
+        }
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                int v = vals[i][j];
+                if (v == 0) continue;
+                if (v < 0 || v > boardSize) return false;
+                long bit = 1L << (v - 1);
+                if (((rows[i] | cols[j] | boxes[box(i, j)]) & bit) != 0) return false;
+                assign(i, j, v);
+            }
+        }
+        return true;
+    }
+
+    public int box(int i, int j) {
+        return (i / partitionSize) * partitionSize + j / partitionSize;
+    }
+
+    // Bits of every value that can still go in (i, j)
+    public long candidates(int i, int j) {
+        return full & ~(rows[i] | cols[j] | boxes[box(i, j)]);
+    }
+
+    public void assign(int i, int j, int v) {
+        long bit = 1L << (v - 1);
+        rows[i] |= bit;
+        cols[j] |= bit;
+        boxes[box(i, j)] |= bit;
+    }
+
+    public void unassign(int i, int j, int v) {
+        long bit = ~(1L << (v - 1));
+        rows[i] &= bit;
+        cols[j] &= bit;
+        boxes[box(i, j)] &= bit;
+    }
+
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    public int getPartitionSize() {
+        return partitionSize;
+    }
+}
@@ -0,0 +1,483 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A conflict-driven clause learning SAT solver for formulas in conjunctive normal form.
+ *
+ * Variables are numbered from 1 and literals are written the DIMACS way, so -3 means
+ * "not variable 3". Unit propagation uses two watched literals per clause. Every
+ * conflict is analysed back to its first unique implication point and the resulting
+ * clause is learnt; decisions go to the unassigned variable with the highest VSIDS
+ * activity, using the value it last had. The search restarts on the Luby sequence,
+ * and at restarts the learnt clauses with the most decision levels (LBD) are dropped
+ * once there are too many of them.
+ */
+public class CdclSolver {
+
+    // Conflicts per unit of the Luby restart sequence
+    public static final int RESTART_UNIT = 100;
+
+    private static final double VAR_DECAY = 0.95;
+
+    private final int variables;
+    private final ArrayList<Clause> clauses = new ArrayList<>();
+    private final ArrayList<Clause> learnts = new ArrayList<>();
+    // Clauses watching each literal, visited when that literal becomes false
+    private final Clause[][] watches;
+    private final int[] watchCount;
+    // Per variable: 1 true, -1 false, 0 unassigned
+    private final byte[] assigns;
+    private final int[] level;
+    private final Clause[] reason;
+    // The value each variable had when it was last unassigned
+    private final boolean[] phase;
+    private final double[] activity;
+    private double activityInc = 1;
+    // Binary max-heap of variables ordered by activity
+    private final int[] heap;
+    private final int[] heapIndex;
+    private int heapSize;
+    private final int[] trail;
+    private int trailSize;
+    private final int[] trailLimits;
+    private int decisionLevel;
+    private int qhead;
+    // Set once the formula is known to have no solution
+    private boolean unsat;
+    private final boolean[] seen;
+    private final int[] levelStamp;
+    private int stamp;
+    private int[] learnt;
+    private int learntSize;
+    private double maxLearnts;
+    private long conflicts;
+    private long decisions;
+    private long restarts;
+    private SearchStats stats;
+
+    public CdclSolver(int variables) {
+        this.variables = variables;
+        int literals = 2 * variables;
+        this.watches = new Clause[literals][];
+        this.watchCount = new int[literals];
+        this.assigns = new byte[variables];
+        this.level = new int[variables];
+        this.reason = new Clause[variables];
+        this.phase = new boolean[variables];
+        this.activity = new double[variables];
+        this.heap = new int[variables];
+        this.heapIndex = new int[variables];
+        this.trail = new int[variables];
+        this.trailLimits = new int[variables + 1];
+        this.seen = new boolean[variables];
+        this.levelStamp = new int[variables + 1];
+        this.learnt = new int[16];
+        for (int v = 0; v < variables; v++) {
+            heapIndex[v] = -1;
+            heapInsert(v);
+        }
+    }
+
+    // Adds a clause before solving. Returns false if the formula is now known to be unsatisfiable.
+    public boolean addClause(int... literals) {
+        if (unsat) return false;
+        int[] lits = new int[literals.length];
+        for (int k = 0; k < literals.length; k++) {
+            int d = literals[k];
+            if (d == 0 || Math.abs(d) > variables) throw new IllegalArgumentException("No such variable: " + d);
+            lits[k] = d > 0 ? 2 * (d - 1) : 2 * (-d - 1) + 1;
+        }
+        // Drop duplicates and literals already false; a true literal or x and not x satisfies it
+        Arrays.sort(lits);
+        int n = 0;
+        for (int k = 0; k < lits.length; k++) {
+            int lit = lits[k];
+            int value = litValue(lit);
+            if (value == 1 || (n > 0 && lits[n - 1] == (lit ^ 1))) return true;
+            if (value == -1 || (n > 0 && lits[n - 1] == lit)) continue;
+            lits[n++] = lit;
+        }
+        if (n == 0) {
+            unsat = true;
+            return false;
+        }
+        if (n == 1) {
+            enqueue(lits[0], null);
+            if (propagate() != null) unsat = true;
+            return !unsat;
+        }
+        Clause clause = new Clause(Arrays.copyOf(lits, n), 0);
+        clauses.add(clause);
+        watch(clause.lits[0], clause);
+        watch(clause.lits[1], clause);
+        return true;
+    }
+
+    public boolean solve() {
+        return solve(null);
+    }
+
+    // Records a node per decision and a backtrack per conflict into stats unless it is null
+    public boolean solve(SearchStats stats) {
+        this.stats = stats;
+        if (unsat) return false;
+        maxLearnts = Math.max(clauses.size() / 3.0, 1000);
+        for (long restart = 0; ; restart++) {
+            int status = search(luby(restart) * RESTART_UNIT);
+            if (status != 0) return status > 0;
+            restarts++;
+            cancelUntil(0);
+            if (learnts.size() >= maxLearnts) {
+                reduceLearnts();
+                maxLearnts *= 1.1;
+            }
+        }
+    }
+
+    // The value of a variable in the solution found by solve
+    public boolean value(int variable) {
+        return assigns[variable - 1] > 0;
+    }
+
+    public int getVariables() {
+        return variables;
+    }
+
+    public int getClauses() {
+        return clauses.size();
+    }
+
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    public long getDecisions() {
+        return decisions;
+    }
+
+    public long getRestarts() {
+        return restarts;
+    }
+
+    // Searches until a solution, a proof that there is none, or conflictBudget conflicts.
+    // Returns 1, -1 or 0 respectively.
+    private int search(long conflictBudget) {
+        long conflictsHere = 0;
+        while (true) {
+            Clause conflict = propagate();
+            if (conflict != null) {
+                conflicts++;
+                conflictsHere++;
+                if (decisionLevel == 0) {
+                    unsat = true;
+                    return -1;
+                }
+                if (stats != null) stats.backtrack(decisionLevel);
+                int backLevel = analyze(conflict);
+                int lbd = lbd();
+                cancelUntil(backLevel);
+                if (learntSize == 1) {
+                    enqueue(learnt[0], null);
+                } else {
+                    Clause clause = new Clause(Arrays.copyOf(learnt, learntSize), lbd);
+                    learnts.add(clause);
+                    watch(clause.lits[0], clause);
+                    watch(clause.lits[1], clause);
+                    enqueue(clause.lits[0], clause);
+                }
+                activityInc /= VAR_DECAY;
+            } else {
+                if (conflictsHere >= conflictBudget) return 0;
+                int next = pickBranchVariable();
+                if (next < 0) return 1;
+                decisions++;
+                trailLimits[decisionLevel++] = trailSize;
+                if (stats != null) stats.node(decisionLevel);
+                enqueue(phase[next] ? 2 * next : 2 * next + 1, null);
+            }
+        }
+    }
+
+    // Returns a clause with every literal false, or null once nothing more is implied
+    private Clause propagate() {
+        while (qhead < trailSize) {
+            int falseLit = trail[qhead++] ^ 1;
+            Clause[] list = watches[falseLit];
+            int n = watchCount[falseLit];
+            int i = 0;
+            int j = 0;
+            while (i < n) {
+                Clause clause = list[i++];
+                int[] lits = clause.lits;
+                // Keep the literal that just went false in slot 1
+                if (lits[0] == falseLit) {
+                    lits[0] = lits[1];
+                    lits[1] = falseLit;
+                }
+                int first = lits[0];
+                if (litValue(first) == 1) {
+                    list[j++] = clause;
+                    continue;
+                }
+                boolean moved = false;
+                for (int k = 2; k < lits.length; k++) {
+                    if (litValue(lits[k]) != -1) {
+                        lits[1] = lits[k];
+                        lits[k] = falseLit;
+                        watch(lits[1], clause);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved) continue;
+                list[j++] = clause;
+                if (litValue(first) == -1) {
+                    while (i < n) list[j++] = list[i++];
+                    watchCount[falseLit] = j;
+                    qhead = trailSize;
+                    return clause;
+                }
+                enqueue(first, clause);
+            }
+            watchCount[falseLit] = j;
+        }
+        return null;
+    }
+
+    // Builds the first-UIP clause for the conflict into learnt, with the asserting
+    // literal first and one from the backjump level second. Returns that level.
+    private int analyze(Clause conflict) {
+        learntSize = 1;
+        int pathCount = 0;
+        int p = -1;
+        int index = trailSize - 1;
+        Clause clause = conflict;
+        do {
+            int[] lits = clause.lits;
+            for (int k = p == -1 ? 0 : 1; k < lits.length; k++) {
+                int q = lits[k];
+                int v = q >> 1;
+                if (seen[v] || level[v] == 0) continue;
+                bumpActivity(v);
+                seen[v] = true;
+                if (level[v] >= decisionLevel) {
+                    pathCount++;
+                } else {
+                    addLearnt(q);
+                }
+            }
+            while (!seen[trail[index] >> 1]) index--;
+            p = trail[index--];
+            clause = reason[p >> 1];
+            seen[p >> 1] = false;
+            pathCount--;
+        } while (pathCount > 0);
+        learnt[0] = p ^ 1;
+
+        // Drop literals implied by the others through their reason clause. They are
+        // only marked at first, since the check relies on seen for the whole clause.
+        for (int k = 1; k < learntSize; k++) {
+            if (redundant(learnt[k] >> 1)) learnt[k] = ~learnt[k];
+        }
+        int n = 1;
+        for (int k = 1; k < learntSize; k++) {
+            int lit = learnt[k];
+            seen[(lit < 0 ? ~lit : lit) >> 1] = false;
+            if (lit >= 0) learnt[n++] = lit;
+        }
+        learntSize = n;
+
+        if (learntSize == 1) return 0;
+        int max = 1;
+        for (int k = 2; k < learntSize; k++) {
+            if (level[learnt[k] >> 1] > level[learnt[max] >> 1]) max = k;
+        }
+        int swap = learnt[1];
+        learnt[1] = learnt[max];
+        learnt[max] = swap;
+        return level[learnt[1] >> 1];
+    }
+
+    private boolean redundant(int v) {
+        Clause clause = reason[v];
+        if (clause == null) return false;
+        for (int k = 1; k < clause.lits.length; k++) {
+            int u = clause.lits[k] >> 1;
+            if (!seen[u] && level[u] > 0) return false;
+        }
+        return true;
+    }
+
+    private void addLearnt(int lit) {
+        if (learntSize == learnt.length) learnt = Arrays.copyOf(learnt, learntSize * 2);
+        learnt[learntSize++] = lit;
+    }
+
+    // How many different decision levels the learnt clause spans
+    private int lbd() {
+        stamp++;
+        int count = 0;
+        for (int k = 0; k < learntSize; k++) {
+            int l = level[learnt[k] >> 1];
+            if (levelStamp[l] != stamp) {
+                levelStamp[l] = stamp;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Keeps the better half of the learnt clauses by LBD, and every clause with an LBD of 2 or less.
+    // Only called at level 0, where no learnt clause is the reason for anything search looks at.
+    private void reduceLearnts() {
+        learnts.sort((a, b) -> a.lbd != b.lbd ? Integer.compare(a.lbd, b.lbd) : Integer.compare(a.lits.length, b.lits.length));
+        int keep = learnts.size() / 2;
+        while (keep < learnts.size() && learnts.get(keep).lbd <= 2) keep++;
+        learnts.subList(keep, learnts.size()).clear();
+        Arrays.fill(watchCount, 0);
+        for (Clause clause : clauses) {
+            watch(clause.lits[0], clause);
+            watch(clause.lits[1], clause);
+        }
+        for (Clause clause : learnts) {
+            watch(clause.lits[0], clause);
+            watch(clause.lits[1], clause);
+        }
+    }
+
+    private void cancelUntil(int target) {
+        if (decisionLevel <= target) return;
+        int limit = trailLimits[target];
+        for (int k = trailSize - 1; k >= limit; k--) {
+            int v = trail[k] >> 1;
+            phase[v] = assigns[v] > 0;
+            assigns[v] = 0;
+            reason[v] = null;
+            if (heapIndex[v] < 0) heapInsert(v);
+        }
+        trailSize = limit;
+        qhead = limit;
+        decisionLevel = target;
+    }
+
+    private int pickBranchVariable() {
+        while (heapSize > 0) {
+            int v = heapRemoveMax();
+            if (assigns[v] == 0) return v;
+        }
+        return -1;
+    }
+
+    private void enqueue(int lit, Clause from) {
+        int v = lit >> 1;
+        assigns[v] = (lit & 1) == 0 ? (byte) 1 : (byte) -1;
+        level[v] = decisionLevel;
+        reason[v] = from;
+        trail[trailSize++] = lit;
+        if (from != null && stats != null) stats.propagated(1);
+    }
+
+    // 1 if the literal is true, -1 if false, 0 if unassigned
+    private int litValue(int lit) {
+        int a = assigns[lit >> 1];
+        return (lit & 1) == 0 ? a : -a;
+    }
+
+    private void watch(int lit, Clause clause) {
+        Clause[] list = watches[lit];
+        int n = watchCount[lit];
+        if (list == null) {
+            list = new Clause[4];
+            watches[lit] = list;
+        } else if (n == list.length) {
+            list = Arrays.copyOf(list, n * 2);
+            watches[lit] = list;
+        }
+        list[n] = clause;
+        watchCount[lit] = n + 1;
+    }
+
+    private void bumpActivity(int v) {
+        activity[v] += activityInc;
+        if (activity[v] > 1e100) {
+            for (int u = 0; u < variables; u++) activity[u] *= 1e-100;
+            activityInc *= 1e-100;
+        }
+        if (heapIndex[v] >= 0) siftUp(heapIndex[v]);
+    }
+
+    private void heapInsert(int v) {
+        heap[heapSize] = v;
+        heapIndex[v] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int heapRemoveMax() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i) {
+        int v = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (activity[heap[parent]] >= activity[v]) break;
+            heap[i] = heap[parent];
+            heapIndex[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        heapIndex[v] = i;
+    }
+
+    private void siftDown(int i) {
+        int v = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]]) child++;
+            if (activity[heap[child]] <= activity[v]) break;
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = v;
+        heapIndex[v] = i;
+    }
+
+    // 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, ... for i = 0, 1, 2, ...
+    static long luby(long i) {
+        long size = 1;
+        int seq = 0;
+        while (size < i + 1) {
+            seq++;
+            size = 2 * size + 1;
+        }
+        while (size - 1 != i) {
+            size = (size - 1) >> 1;
+            seq--;
+            i = i % size;
+        }
+        return 1L << seq;
+    }
+
+    private static class Clause {
+
+        // The two watched literals are kept in slots 0 and 1
+        private final int[] lits;
+        // Decision levels spanned when learnt, 0 for the clauses of the formula
+        private final int lbd;
+
+        private Clause(int[] lits, int lbd) {
+            this.lits = lits;
+            this.lbd = lbd;
+        }
+    }
+}
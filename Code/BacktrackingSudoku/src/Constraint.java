@@ -0,0 +1,21 @@
+/**
+ * A constraint over some variables of a ConstraintSolver. Propagating it removes values
+ * from the domains of its scope that cannot be part of any solution of the constraint,
+ * always through ConstraintSolver.restrict so the change is trailed and the other
+ * constraints on those variables are queued again.
+ */
+public abstract class Constraint {
+
+    protected final int[] scope;
+
+    protected Constraint(int... scope) {
+        this.scope = scope.clone();
+    }
+
+    public int[] getScope() {
+        return scope.clone();
+    }
+
+    // Returns false once some domain in the scope is empty
+    public abstract boolean propagate(ConstraintSolver solver);
+}
@@ -0,0 +1,242 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A general constraint satisfaction engine over small integer domains.
+ *
+ * Each variable's domain is a bitset with value v stored as bit (v - 1), so values run
+ * from 1 to 64. Constraints narrow domains through restrict, which records the old domain
+ * on a trail and queues every other constraint on that variable, AC-3 style, until nothing
+ * changes. Search picks a variable and a value with pluggable heuristics, propagates, and
+ * on failure rolls the trail back and removes the value instead.
+ */
+public class ConstraintSolver {
+
+    // Picks the next variable to branch on, or returns -1 once every variable is bound
+    public interface VariableOrder {
+        int select(ConstraintSolver solver);
+    }
+
+    // Picks which of the values left to try for the variable comes next
+    public interface ValueOrder {
+        int select(ConstraintSolver solver, int variable, long values);
+    }
+
+    public static final VariableOrder INPUT_ORDER = solver -> {
+        for (int x = 0; x < solver.variables; x++) {
+            if (!solver.isBound(x)) return x;
+        }
+        return -1;
+    };
+
+    // Smallest domain first, ties going to the variable in the most constraints
+    public static final VariableOrder MIN_DOMAIN = solver -> {
+        int best = -1;
+        int bestSize = Integer.MAX_VALUE;
+        int bestDegree = -1;
+        for (int x = 0; x < solver.variables; x++) {
+            int size = Long.bitCount(solver.domains[x]);
+            if (size <= 1 || size > bestSize) continue;
+            int degree = solver.constraintsOf[x].length;
+            if (size < bestSize || degree > bestDegree) {
+                best = x;
+                bestSize = size;
+                bestDegree = degree;
+            }
+        }
+        return best;
+    };
+
+    public static final ValueOrder LOWEST = (solver, variable, values) -> Long.numberOfTrailingZeros(values) + 1;
+
+    public static final ValueOrder HIGHEST = (solver, variable, values) -> 64 - Long.numberOfLeadingZeros(values);
+
+    // Uniformly random among the values left, reproducible for a given seed
+    public static ValueOrder random(long seed) {
+        Random random = new Random(seed);
+        return (solver, variable, values) -> {
+            int skip = random.nextInt(Long.bitCount(values));
+            for (int k = 0; k < skip; k++) values &= values - 1;
+            return Long.numberOfTrailingZeros(values) + 1;
+        };
+    }
+
+    private int variables;
+    private long[] domains = new long[16];
+    private final ArrayList<Constraint> constraints = new ArrayList<>();
+    // Indices of the constraints on each variable, built when solving starts
+    private int[][] constraintsOf;
+    private VariableOrder variableOrder = MIN_DOMAIN;
+    private ValueOrder valueOrder = LOWEST;
+    // Old domains, newest last; a variable is saved at most once per stamp
+    private int[] trailVariable = new int[64];
+    private long[] trailDomain = new long[64];
+    private int trailSize;
+    private int[] savedStamp = new int[16];
+    private int stamp = 1;
+    private int[] queue;
+    private boolean[] queued;
+    private int queueHead;
+    private int queueSize;
+    private SearchStats stats;
+
+    public int addVariable(long domain) {
+        if (variables == domains.length) {
+            domains = Arrays.copyOf(domains, variables * 2);
+            savedStamp = Arrays.copyOf(savedStamp, variables * 2);
+        }
+        domains[variables] = domain;
+        return variables++;
+    }
+
+    // A variable that can take any value from min to max
+    public int addVariable(int min, int max) {
+        if (min < 1 || max > 64 || min > max) throw new IllegalArgumentException("Values must lie in 1..64: " + min + ".." + max);
+        long domain = (max == 64 ? -1L : (1L << max) - 1) & ~((1L << (min - 1)) - 1);
+        return addVariable(domain);
+    }
+
+    public void addConstraint(Constraint constraint) {
+        for (int x : constraint.scope) {
+            if (x < 0 || x >= variables) throw new IllegalArgumentException("No such variable: " + x);
+        }
+        constraints.add(constraint);
+    }
+
+    public void setVariableOrder(VariableOrder variableOrder) {
+        this.variableOrder = variableOrder;
+    }
+
+    public void setValueOrder(ValueOrder valueOrder) {
+        this.valueOrder = valueOrder;
+    }
+
+    public int getVariables() {
+        return variables;
+    }
+
+    public long getDomain(int variable) {
+        return domains[variable];
+    }
+
+    public boolean isBound(int variable) {
+        return Long.bitCount(domains[variable]) == 1;
+    }
+
+    // The value of a bound variable
+    public int getValue(int variable) {
+        return Long.numberOfTrailingZeros(domains[variable]) + 1;
+    }
+
+    // Cuts the variable's domain down to the values also in domain. Returns false if none are left.
+    public boolean restrict(int variable, long domain) {
+        long old = domains[variable];
+        long narrowed = old & domain;
+        if (narrowed == old) return true;
+        if (savedStamp[variable] != stamp) {
+            savedStamp[variable] = stamp;
+            if (trailSize == trailVariable.length) {
+                trailVariable = Arrays.copyOf(trailVariable, trailSize * 2);
+                trailDomain = Arrays.copyOf(trailDomain, trailSize * 2);
+            }
+            trailVariable[trailSize] = variable;
+            trailDomain[trailSize] = old;
+            trailSize++;
+        }
+        domains[variable] = narrowed;
+        if (narrowed == 0) return false;
+        for (int c : constraintsOf[variable]) {
+            if (queued[c]) continue;
+            queued[c] = true;
+            queue[(queueHead + queueSize++) % queue.length] = c;
+        }
+        return true;
+    }
+
+    public boolean solve() {
+        return solve(null);
+    }
+
+    // Leaves a solution in the domains, each then holding a single value
+    public boolean solve(SearchStats stats) {
+        this.stats = stats;
+        index();
+        trailSize = 0;
+        for (int c = 0; c < constraints.size(); c++) {
+            queued[c] = true;
+            queue[c] = c;
+        }
+        queueHead = 0;
+        queueSize = constraints.size();
+        return propagate() && search(0);
+    }
+
+    private void index() {
+        int[] counts = new int[variables];
+        for (Constraint constraint : constraints) {
+            for (int x : constraint.scope) counts[x]++;
+        }
+        constraintsOf = new int[variables][];
+        for (int x = 0; x < variables; x++) {
+            constraintsOf[x] = new int[counts[x]];
+            counts[x] = 0;
+        }
+        for (int c = 0; c < constraints.size(); c++) {
+            for (int x : constraints.get(c).scope) constraintsOf[x][counts[x]++] = c;
+        }
+        queue = new int[Math.max(1, constraints.size())];
+        queued = new boolean[constraints.size()];
+    }
+
+    // Runs queued constraints until none of them changes anything
+    private boolean propagate() {
+        while (queueSize > 0) {
+            int c = queue[queueHead];
+            queueHead = (queueHead + 1) % queue.length;
+            queueSize--;
+            queued[c] = false;
+            if (!constraints.get(c).propagate(this)) {
+                while (queueSize > 0) {
+                    queued[queue[queueHead]] = false;
+                    queueHead = (queueHead + 1) % queue.length;
+                    queueSize--;
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean search(int depth) {
+        int variable = variableOrder.select(this);
+        if (variable < 0) return true;
+        if (stats != null) stats.node(depth);
+        while (true) {
+            long values = domains[variable];
+            int v = valueOrder.select(this, variable, values);
+            long bit = 1L << (v - 1);
+            int mark = trailSize;
+            stamp++;
+            if (restrict(variable, bit) && propagate() && search(depth + 1)) return true;
+            undo(mark);
+            // The value failed, so take it out here and see what that implies
+            if (!restrict(variable, ~bit) || !propagate()) break;
+            if (isBound(variable)) return search(depth + 1) || fail(depth);
+        }
+        return fail(depth);
+    }
+
+    private boolean fail(int depth) {
+        if (stats != null) stats.backtrack(depth);
+        return false;
+    }
+
+    private void undo(int mark) {
+        while (trailSize > mark) {
+            trailSize--;
+            domains[trailVariable[trailSize]] = trailDomain[trailSize];
+        }
+        stamp++;
+    }
+}
@@ -0,0 +1,155 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * Compiles a board into a ConstraintSolver and solves it there: a variable per cell,
+ * givens as single-value domains, and an AllDifferent for every row, column and
+ * partition. Killer cages add a SumConstraint and an AllDifferent over their cells.
+ *
+ * Killer puzzles use the Data/*.txt board format followed by one line per cage:
+ * "cage", the sum, then the cells as row-major indices (i * boardSize + j).
+ */
+public class CspSolver implements BoardSolver {
+
+    private final int boardSize;
+    private final List<Cage> cages;
+    private final ConstraintSolver.VariableOrder variableOrder;
+    private final ConstraintSolver.ValueOrder valueOrder;
+
+    public CspSolver(int boardSize) {
+        this(boardSize, Collections.<Cage>emptyList());
+    }
+
+    public CspSolver(int boardSize, List<Cage> cages) {
+        this(boardSize, cages, ConstraintSolver.MIN_DOMAIN, ConstraintSolver.LOWEST);
+    }
+
+    public CspSolver(int boardSize, List<Cage> cages, ConstraintSolver.VariableOrder variableOrder, ConstraintSolver.ValueOrder valueOrder) {
+        if (boardSize < 1 || boardSize > 64) throw new IllegalArgumentException("Domains only hold values up to 64");
+        this.boardSize = boardSize;
+        this.cages = cages;
+        this.variableOrder = variableOrder;
+        this.valueOrder = valueOrder;
+    }
+
+    @Override
+    public boolean solve(int[][] vals, SearchStats stats) {
+        ConstraintSolver csp = compile(vals, cages);
+        if (csp == null) return false;
+        csp.setVariableOrder(variableOrder);
+        csp.setValueOrder(valueOrder);
+        if (!csp.solve(stats)) return false;
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                vals[i][j] = csp.getValue(i * boardSize + j);
+            }
+        }
+        return true;
+    }
+
+    // Variable i * boardSize + j stands for cell (i, j). Returns null for a value off the board.
+    public static ConstraintSolver compile(int[][] vals, List<Cage> cages) {
+        int boardSize = vals.length;
+        int partitionSize = (int) Math.sqrt(boardSize);
+        ConstraintSolver csp = new ConstraintSolver();
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                int v = vals[i][j];
+                if (v < 0 || v > boardSize) return null;
+                if (v == 0) {
+                    csp.addVariable(1, boardSize);
+                } else {
+                    csp.addVariable(1L << (v - 1));
+                }
+            }
+        }
+        for (int x = 0; x < boardSize; x++) {
+            int[] row = new int[boardSize];
+            int[] col = new int[boardSize];
+            int[] box = new int[boardSize];
+            for (int k = 0; k < boardSize; k++) {
+                row[k] = x * boardSize + k;
+                col[k] = k * boardSize + x;
+                int i = (x / partitionSize) * partitionSize + k / partitionSize;
+                int j = (x % partitionSize) * partitionSize + k % partitionSize;
+                box[k] = i * boardSize + j;
+            }
+            csp.addConstraint(new AllDifferent(row));
+            csp.addConstraint(new AllDifferent(col));
+            csp.addConstraint(new AllDifferent(box));
+        }
+        for (Cage cage : cages) {
+            csp.addConstraint(new SumConstraint(cage.sum, cage.cells));
+            csp.addConstraint(new AllDifferent(cage.cells));
+        }
+        return csp;
+    }
+
+    // Reads the cage lines that follow a board, up to the end of the input
+    public static List<Cage> readCages(Scanner input, int boardSize) {
+        List<Cage> cages = new ArrayList<>();
+        while (input.hasNext()) {
+            String word = input.next();
+            if (!word.equals("cage")) throw new RuntimeException("Expected a cage but found " + word);
+            Scanner line = new Scanner(input.nextLine());
+            int sum = line.nextInt();
+            ArrayList<Integer> cells = new ArrayList<>();
+            while (line.hasNextInt()) {
+                int cell = line.nextInt();
+                if (cell < 0 || cell >= boardSize * boardSize) throw new RuntimeException("No such cell: " + cell);
+                cells.add(cell);
+            }
+            int[] array = new int[cells.size()];
+            for (int k = 0; k < array.length; k++) array[k] = cells.get(k);
+            cages.add(new Cage(sum, array));
+        }
+        return cages;
+    }
+
+    // Cells that must add up to sum, each holding a different value
+    public static class Cage {
+
+        private final int sum;
+        private final int[] cells;
+
+        public Cage(int sum, int... cells) {
+            this.sum = sum;
+            this.cells = cells.clone();
+        }
+
+        public int getSum() {
+            return sum;
+        }
+
+        public int[] getCells() {
+            return cells.clone();
+        }
+    }
+
+    // Usage: CspSolver <puzzle file, optionally followed by cages>
+    public static void main(String[] args) throws FileNotFoundException {
+        if (args.length == 0) {
+            System.out.println("Usage: CspSolver <puzzle file, optionally followed by cages>");
+            return;
+        }
+        int[][] vals;
+        List<Cage> cages;
+        try (Scanner input = new Scanner(new File(args[0]))) {
+            vals = Sudoku.readBoard(input);
+            cages = readCages(input, vals.length);
+        }
+        SearchStats stats = new SearchStats();
+        boolean solved = new CspSolver(vals.length, cages).solve(vals, stats);
+        stats.finish();
+        System.out.print(stats);
+        if (solved) {
+            Sudoku.printBoard(vals);
+        } else {
+            System.out.println("No solution found.");
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Solves a board as an exact cover problem with Knuth's Algorithm X and Dancing Links.
+ *
+ * Every (row, col, value) placement is a matrix row covering four columns: the cell,
+ * the value in that row, the value in that column and the value in that partition.
+ * All links live in flat int arrays indexed by node, so once the matrix has been
+ * built nothing is allocated during search and the solver can be reused for every
+ * puzzle of the same size.
+ */
+public class DancingLinksSolver implements BoardSolver {
+
+    private final int boardSize;
+    private final int partitionSize;
+    private final int columns;
+    private final int[] left;
+    private final int[] right;
+    private final int[] up;
+    private final int[] down;
+    // Column header of each node, and the placement each node belongs to
+    private final int[] column;
+    private final int[] placement;
+    private final int[] size;
+    private final boolean[] covered;
+    private final int[] solution;
+    private int solutionDepth;
+    private SearchStats stats;
+
+    public DancingLinksSolver(int boardSize) {
+        this.boardSize = boardSize;
+        this.partitionSize = (int) Math.sqrt(boardSize);
+        int cells = boardSize * boardSize;
+        this.columns = 4 * cells;
+        // Node 0 is the root, 1..columns are the column headers, then 4 nodes per placement
+        int nodes = columns + 1 + 4 * cells * boardSize;
+        this.left = new int[nodes];
+        this.right = new int[nodes];
+        this.up = new int[nodes];
+        this.down = new int[nodes];
+        this.column = new int[nodes];
+        this.placement = new int[nodes];
+        this.size = new int[columns + 1];
+        this.covered = new boolean[columns + 1];
+        this.solution = new int[cells];
+    }
+
+    @Override
+    public boolean solve(int[][] vals, SearchStats stats) {
+        this.stats = stats;
+        build();
+        // Givens are chosen up front; two givens that need the same column clash
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                int v = vals[i][j];
+                if (v == 0) continue;
+                if (v < 0 || v > boardSize) return false;
+                int first = firstNode(i, j, v);
+                for (int k = 0; k < 4; k++) {
+                    if (covered[column[first + k]]) return false;
+                }
+                cover(column[first]);
+                for (int n = right[first]; n != first; n = right[n]) cover(column[n]);
+            }
+        }
+        if (!search(0)) return false;
+        for (int d = 0; d < solutionDepth; d++) {
+            int p = solution[d];
+            int cell = p / boardSize;
+            vals[cell / boardSize][cell % boardSize] = p % boardSize + 1;
+        }
+        return true;
+    }
+
+    private boolean search(int depth) {
+        if (right[0] == 0) {
+            solutionDepth = depth;
+            return true;
+        }
+        if (stats != null) stats.node(depth);
+        // Branch on the column with the fewest rows left
+        int c = right[0];
+        for (int x = right[c]; x != 0; x = right[x]) {
+            if (size[x] < size[c]) c = x;
+        }
+        if (size[c] == 0) {
+            if (stats != null) stats.backtrack(depth);
+            return false;
+        }
+
+        cover(c);
+        for (int r = down[c]; r != c; r = down[r]) {
+            solution[depth] = placement[r];
+            for (int n = right[r]; n != r; n = right[n]) cover(column[n]);
+            if (search(depth + 1)) return true;
+            for (int n = left[r]; n != r; n = left[n]) uncover(column[n]);
+        }
+        uncover(c);
+        if (stats != null) stats.backtrack(depth);
+        return false;
+    }
+
+    private void cover(int c) {
+        covered[c] = true;
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+        for (int r = down[c]; r != c; r = down[r]) {
+            for (int n = right[r]; n != r; n = right[n]) {
+                down[up[n]] = down[n];
+                up[down[n]] = up[n];
+                size[column[n]]--;
+            }
+        }
+    }
+
+    private void uncover(int c) {
+        for (int r = up[c]; r != c; r = up[r]) {
+            for (int n = left[r]; n != r; n = left[n]) {
+                size[column[n]]++;
+                down[up[n]] = n;
+                up[down[n]] = n;
+            }
+        }
+        right[left[c]] = c;
+        left[right[c]] = c;
+        covered[c] = false;
+    }
+
+    // Lays out the full matrix again, undoing whatever the last puzzle left covered
+    private void build() {
+        for (int c = 0; c <= columns; c++) {
+            left[c] = c == 0 ? columns : c - 1;
+            right[c] = c == columns ? 0 : c + 1;
+            up[c] = c;
+            down[c] = c;
+            size[c] = 0;
+            covered[c] = false;
+        }
+        int cells = boardSize * boardSize;
+        int n = columns + 1;
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                int box = (i / partitionSize) * partitionSize + j / partitionSize;
+                for (int v = 0; v < boardSize; v++) {
+                    int p = (i * boardSize + j) * boardSize + v;
+                    int first = n;
+                    link(n++, p, 1 + i * boardSize + j);
+                    link(n++, p, 1 + cells + i * boardSize + v);
+                    link(n++, p, 1 + 2 * cells + j * boardSize + v);
+                    link(n++, p, 1 + 3 * cells + box * boardSize + v);
+                    for (int k = 0; k < 4; k++) {
+                        left[first + k] = first + (k + 3) % 4;
+                        right[first + k] = first + (k + 1) % 4;
+                    }
+                }
+            }
+        }
+    }
+
+    // Appends node n to the bottom of column c
+    private void link(int n, int p, int c) {
+        column[n] = c;
+        placement[n] = p;
+        up[n] = up[c];
+        down[n] = c;
+        down[up[c]] = n;
+        up[c] = n;
+        size[c]++;
+    }
+
+    private int firstNode(int i, int j, int v) {
+        return columns + 1 + 4 * ((i * boardSize + j) * boardSize + v - 1);
+    }
+}
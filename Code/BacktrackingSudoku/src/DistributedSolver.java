@@ -0,0 +1,624 @@
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spreads one search over several worker JVMs on this machine, talking over localhost
+ * sockets. The coordinator splits the search tree at a fixed depth the way
+ * ParallelSolver does and hands the subproblems out one at a time to idle workers.
+ * Once it has none left, an idle worker gets work by stealing: the coordinator asks a
+ * busy worker, which gives away half the untried values nearest the root of its own
+ * search, and passes them on. The first solution ends the job and every worker is told
+ * to stop; if every worker is idle with nothing left to hand out, there is no solution.
+ *
+ * Workers are started on the first solve and kept for later ones until close. Every
+ * message is one line of text, boards written out row by row:
+ *
+ *     coordinator to worker   WORK cells, STEAL, STOP, QUIT
+ *     worker to coordinator   IDLE, GIVE cells, GAVE count, SOLVED cells,
+ *                             STOPPED nodes backtracks maxDepth
+ *
+ * A worker answers STEAL with its GIVE lines followed by GAVE, as soon as it has a node
+ * with untried values, or with GAVE 0 once it runs out of work. It answers STOP with
+ * STOPPED, its last message for the job.
+ */
+public class DistributedSolver implements BoardSolver, Closeable {
+
+    public static final int DEFAULT_SPLIT_DEPTH = 2;
+    private static final int CONNECT_MILLIS = 30_000;
+
+    private static final String WORK = "WORK";
+    private static final String STEAL = "STEAL";
+    private static final String STOP = "STOP";
+    private static final String QUIT = "QUIT";
+    private static final String IDLE = "IDLE";
+    private static final String GIVE = "GIVE";
+    private static final String GAVE = "GAVE";
+    private static final String SOLVED = "SOLVED";
+    private static final String STOPPED = "STOPPED";
+
+    private final int boardSize;
+    private final int workers;
+    private final int splitDepth;
+    private final BlockingQueue<Message> inbox = new LinkedBlockingQueue<>();
+    private final List<Link> links = new ArrayList<>();
+    private final List<Process> processes = new ArrayList<>();
+    private long steals;
+
+    public DistributedSolver(int boardSize, int workers, int splitDepth) {
+        if (workers < 1) throw new IllegalArgumentException("Need at least one worker");
+        this.boardSize = boardSize;
+        this.workers = workers;
+        this.splitDepth = splitDepth;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    // Steals that moved work from a busy worker to an idle one, over every solve so far
+    public synchronized long getSteals() {
+        return steals;
+    }
+
+    @Override
+    public synchronized boolean solve(int[][] vals, SearchStats stats) {
+        int[][] solution;
+        try {
+            solution = run(vals, stats);
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException("Lost touch with the workers", e);
+        } catch (InterruptedException e) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the workers", e);
+        }
+        if (solution == null) return false;
+        for (int i = 0; i < boardSize; i++) {
+            System.arraycopy(solution[i], 0, vals[i], 0, boardSize);
+        }
+        return true;
+    }
+
+    private int[][] run(int[][] vals, SearchStats stats) throws IOException, InterruptedException {
+        ArrayDeque<int[][]> queue = new ArrayDeque<>();
+        for (int[][] subproblem : split(vals, splitDepth)) {
+            if (isFull(subproblem)) {
+                // Forced cells alone finished it, unless this is the input itself with no
+                // split and its givens clash
+                if (new CandidateMasks(boardSize).load(subproblem)) return subproblem;
+                continue;
+            }
+            queue.add(subproblem);
+        }
+        if (queue.isEmpty()) return null;
+        if (links.isEmpty()) start();
+
+        for (Link link : links) {
+            link.idle = true;
+            link.robbed = false;
+        }
+        int stealing = 0;
+        int[][] solution = null;
+        while (true) {
+            for (Link link : links) {
+                if (queue.isEmpty()) break;
+                if (!link.idle) continue;
+                link.send(WORK, queue.poll());
+                link.idle = false;
+            }
+            if (queue.isEmpty()) stealing += requestSteals(stealing);
+            if (queue.isEmpty() && stealing == 0 && allIdle()) break;
+
+            Message message = take();
+            String[] parts = message.line.split(" ");
+            if (parts[0].equals(IDLE)) {
+                message.link.idle = true;
+            } else if (parts[0].equals(GIVE)) {
+                queue.add(parse(parts));
+            } else if (parts[0].equals(GAVE)) {
+                message.link.robbed = false;
+                stealing--;
+                if (Integer.parseInt(parts[1]) > 0) steals++;
+            } else if (parts[0].equals(SOLVED)) {
+                solution = parse(parts);
+                break;
+            }
+        }
+
+        // Anything else the workers send before STOPPED belongs to the finished job
+        for (Link link : links) link.send(STOP);
+        for (int stopped = 0; stopped < links.size(); ) {
+            String[] parts = take().line.split(" ");
+            if (!parts[0].equals(STOPPED)) continue;
+            if (stats != null) stats.add(Long.parseLong(parts[1]), Long.parseLong(parts[2]), Integer.parseInt(parts[3]));
+            stopped++;
+        }
+        return solution;
+    }
+
+    // Asks busy workers for work, one for each idle worker not already waiting on a steal
+    private int requestSteals(int stealing) {
+        int idle = 0;
+        for (Link link : links) {
+            if (link.idle) idle++;
+        }
+        int requested = 0;
+        for (Link link : links) {
+            if (stealing + requested >= idle) break;
+            if (link.idle || link.robbed) continue;
+            link.send(STEAL);
+            link.robbed = true;
+            requested++;
+        }
+        return requested;
+    }
+
+    private boolean allIdle() {
+        for (Link link : links) {
+            if (!link.idle) return false;
+        }
+        return true;
+    }
+
+    private Message take() throws IOException, InterruptedException {
+        Message message = inbox.take();
+        if (message.line == null) throw new IOException("Worker " + message.link.index + " disconnected");
+        return message;
+    }
+
+    // Launches the worker JVMs and waits for each of them to connect
+    private void start() throws IOException {
+        inbox.clear();
+        try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(CONNECT_MILLIS);
+            String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+            for (int w = 0; w < workers; w++) {
+                processes.add(new ProcessBuilder(java, "-cp", classPath(), DistributedSolver.class.getName(),
+                        "worker", String.valueOf(server.getLocalPort())).inheritIO().start());
+            }
+            for (int w = 0; w < workers; w++) {
+                Link link = new Link(w, server.accept());
+                links.add(link);
+                link.listen(inbox);
+            }
+        }
+    }
+
+    // Where this class was loaded from, which also works under runners that load classes
+    // through a class loader of their own instead of from java.class.path
+    private static String classPath() {
+        CodeSource source = DistributedSolver.class.getProtectionDomain().getCodeSource();
+        if (source != null) {
+            try {
+                return new File(source.getLocation().toURI()).getPath();
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // Not a plain file location, so fall through
+            }
+        }
+        return System.getProperty("java.class.path");
+    }
+
+    // Tells the workers to quit and waits a little for them to go
+    @Override
+    public synchronized void close() {
+        for (Link link : links) link.close();
+        boolean interrupted = false;
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) process.destroyForcibly();
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                interrupted = true;
+            }
+        }
+        links.clear();
+        processes.clear();
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    // Every board depth branching levels below vals, full boards included as they are
+    static List<int[][]> split(int[][] vals, int depth) {
+        List<int[][]> level = new ArrayList<>();
+        level.add(copy(vals));
+        for (int d = 0; d < depth; d++) {
+            List<int[][]> next = new ArrayList<>();
+            for (int[][] board : level) {
+                if (isFull(board)) next.add(board);
+                else next.addAll(branch(board));
+            }
+            level = next;
+        }
+        return level;
+    }
+
+    // The boards one branching level down: forced cells are filled in first, then the cell
+    // with the fewest candidates is split on. A dead board has none, a full one is its own
+    static List<int[][]> branch(int[][] board) {
+        int boardSize = board.length;
+        int[][] vals = copy(board);
+        List<int[][]> children = new ArrayList<>();
+        CandidateMasks masks = new CandidateMasks(boardSize);
+        if (!masks.load(vals)) return children;
+        int bestI;
+        int bestJ;
+        long bestCandidates;
+        while (true) {
+            bestI = -1;
+            bestJ = -1;
+            bestCandidates = 0;
+            int bestCount = Integer.MAX_VALUE;
+            for (int i = 0; i < boardSize; i++) {
+                for (int j = 0; j < boardSize; j++) {
+                    if (vals[i][j] != 0) continue;
+                    long candidates = masks.candidates(i, j);
+                    int count = Long.bitCount(candidates);
+                    if (count == 0) return children;
+                    if (count < bestCount) {
+                        bestI = i;
+                        bestJ = j;
+                        bestCandidates = candidates;
+                        bestCount = count;
+                    }
+                }
+            }
+            if (bestI < 0) {
+                children.add(vals);
+                return children;
+            }
+            if (bestCount > 1) break;
+            int v = Long.numberOfTrailingZeros(bestCandidates) + 1;
+            vals[bestI][bestJ] = v;
+            masks.assign(bestI, bestJ, v);
+        }
+        while (bestCandidates != 0) {
+            long bit = bestCandidates & -bestCandidates;
+            bestCandidates ^= bit;
+            int[][] child = copy(vals);
+            child[bestI][bestJ] = Long.numberOfTrailingZeros(bit) + 1;
+            children.add(child);
+        }
+        return children;
+    }
+
+    private static boolean isFull(int[][] vals) {
+        for (int[] row : vals) {
+            for (int v : row) {
+                if (v == 0) return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[][] copy(int[][] vals) {
+        int[][] copy = new int[vals.length][];
+        for (int i = 0; i < vals.length; i++) {
+            copy[i] = vals[i].clone();
+        }
+        return copy;
+    }
+
+    private static String message(String tag, int[][] vals) {
+        StringBuilder line = new StringBuilder(tag);
+        for (int[] row : vals) {
+            for (int v : row) {
+                line.append(' ').append(v);
+            }
+        }
+        return line.toString();
+    }
+
+    // The board of a WORK, GIVE or SOLVED line, its size taken from the number of cells
+    private static int[][] parse(String[] parts) {
+        int cells = parts.length - 1;
+        int boardSize = (int) Math.round(Math.sqrt(cells));
+        if (boardSize * boardSize != cells) throw new IllegalArgumentException("Not a square board: " + cells + " cells");
+        int[][] vals = new int[boardSize][boardSize];
+        for (int k = 0; k < cells; k++) {
+            vals[k / boardSize][k % boardSize] = Integer.parseInt(parts[k + 1]);
+        }
+        return vals;
+    }
+
+    private static class Message {
+
+        private final Link link;
+        // Null once the worker has gone
+        private final String line;
+
+        private Message(Link link, String line) {
+            this.link = link;
+            this.line = line;
+        }
+    }
+
+    // The coordinator's end of one worker connection
+    private static class Link {
+
+        private final int index;
+        private final Socket socket;
+        private final PrintWriter out;
+        private boolean idle;
+        // A STEAL sent to this worker is still unanswered
+        private boolean robbed;
+
+        private Link(int index, Socket socket) throws IOException {
+            this.index = index;
+            this.socket = socket;
+            this.out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+        }
+
+        // Forwards every line from the worker to the coordinator's inbox
+        private void listen(BlockingQueue<Message> inbox) throws IOException {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Thread reader = new Thread(() -> {
+                try {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        inbox.add(new Message(this, line));
+                    }
+                } catch (IOException e) {
+                    // Same as the worker hanging up
+                }
+                inbox.add(new Message(this, null));
+            }, "distributed-link-" + index);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private void send(String line) {
+            out.println(line);
+        }
+
+        private void send(String tag, int[][] vals) {
+            out.println(message(tag, vals));
+        }
+
+        private void close() {
+            out.println(QUIT);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing left to tell it
+            }
+        }
+    }
+
+    // A worker JVM: runs every search on one thread and reads the commands for it from an
+    // inbox, which the search checks before every step
+    private static class Worker {
+
+        private static final int FULL = -1;
+        private static final int DEAD = -2;
+
+        private final BlockingQueue<String> inbox = new LinkedBlockingQueue<>();
+        private final PrintWriter out;
+        private SearchStats stats = new SearchStats();
+        private boolean stealWanted;
+        private boolean stopped;
+        private boolean quit;
+
+        // The trail: the cell chosen at each depth, the values not tried there yet and the
+        // one placed there now
+        private int boardSize;
+        private CandidateMasks masks;
+        private int[] cellI;
+        private int[] cellJ;
+        private long[] remaining;
+        private int[] placed;
+
+        private Worker(PrintWriter out) {
+            this.out = out;
+        }
+
+        private void run() throws InterruptedException {
+            while (!quit) {
+                String line = inbox.take();
+                if (line.equals(QUIT)) return;
+                if (line.startsWith(WORK)) {
+                    int[][] solution = search(parse(line.split(" ")));
+                    if (solution != null) {
+                        out.println(message(SOLVED, solution));
+                    } else if (!stopped && !quit) {
+                        if (stealWanted) out.println(GAVE + " 0");
+                        stealWanted = false;
+                        out.println(IDLE);
+                    }
+                } else if (line.equals(STEAL)) {
+                    out.println(GAVE + " 0");
+                } else if (line.equals(STOP)) {
+                    stopped = true;
+                }
+                if (stopped) {
+                    out.println(STOPPED + " " + stats.getNodes() + " " + stats.getBacktracks() + " " + stats.getMaxDepth());
+                    stats = new SearchStats();
+                    stealWanted = false;
+                    stopped = false;
+                }
+            }
+        }
+
+        // Depth-first MRV search of one subproblem, on an explicit trail so that the untried
+        // values nearest the root can be given away at any node. Returns the solved board,
+        // or null if there is none or the job was stopped.
+        private int[][] search(int[][] board) {
+            prepare(board.length);
+            int[][] vals = copy(board);
+            if (!masks.load(vals)) return null;
+            int cell = fewest(vals);
+            if (cell == FULL) return vals;
+            if (cell == DEAD) return null;
+            int depth = 0;
+            enter(0, cell);
+            while (depth >= 0) {
+                if (checkInbox()) return null;
+                if (stealWanted) stealWanted = !give(board, depth);
+                int i = cellI[depth];
+                int j = cellJ[depth];
+                // Take back whatever we tried here last time
+                if (placed[depth] != 0) {
+                    masks.unassign(i, j, placed[depth]);
+                    placed[depth] = 0;
+                }
+                long candidates = remaining[depth];
+                if (candidates == 0) {
+                    // Nothing left to try here, so we backtrack
+                    vals[i][j] = 0;
+                    stats.backtrack(depth);
+                    depth--;
+                    continue;
+                }
+                long bit = candidates & -candidates;
+                remaining[depth] = candidates ^ bit;
+                int v = Long.numberOfTrailingZeros(bit) + 1;
+                vals[i][j] = v;
+                masks.assign(i, j, v);
+                placed[depth] = v;
+
+                cell = fewest(vals);
+                if (cell == FULL) return vals;
+                if (cell == DEAD) continue;
+                depth++;
+                enter(depth, cell);
+            }
+            return null;
+        }
+
+        private void prepare(int size) {
+            if (masks != null && boardSize == size) return;
+            boardSize = size;
+            masks = new CandidateMasks(size);
+            int cells = size * size;
+            cellI = new int[cells];
+            cellJ = new int[cells];
+            remaining = new long[cells];
+            placed = new int[cells];
+        }
+
+        private void enter(int depth, int cell) {
+            cellI[depth] = cell / boardSize;
+            cellJ[depth] = cell % boardSize;
+            remaining[depth] = masks.candidates(cellI[depth], cellJ[depth]);
+            placed[depth] = 0;
+            stats.node(depth);
+        }
+
+        // The open cell with the fewest candidates, FULL if there is none, or DEAD on
+        // reaching a cell with none left
+        private int fewest(int[][] vals) {
+            int best = FULL;
+            int bestCount = Integer.MAX_VALUE;
+            for (int i = 0; i < boardSize; i++) {
+                for (int j = 0; j < boardSize; j++) {
+                    if (vals[i][j] != 0) continue;
+                    int count = Long.bitCount(masks.candidates(i, j));
+                    if (count == 0) return DEAD;
+                    if (count < bestCount) {
+                        best = i * boardSize + j;
+                        bestCount = count;
+                    }
+                }
+            }
+            return best;
+        }
+
+        // Sends half the untried values at the shallowest depth that has any, as boards of
+        // their own; false if there is nothing to give yet
+        private boolean give(int[][] board, int depth) {
+            int d = 0;
+            while (d <= depth && remaining[d] == 0) d++;
+            if (d > depth) return false;
+            int[][] prefix = copy(board);
+            for (int k = 0; k < d; k++) {
+                prefix[cellI[k]][cellJ[k]] = placed[k];
+            }
+            long candidates = remaining[d];
+            int count = (Long.bitCount(candidates) + 1) / 2;
+            for (int k = 0; k < count; k++) {
+                long bit = Long.highestOneBit(candidates);
+                candidates ^= bit;
+                prefix[cellI[d]][cellJ[d]] = Long.numberOfTrailingZeros(bit) + 1;
+                out.println(message(GIVE, prefix));
+            }
+            remaining[d] = candidates;
+            out.println(GAVE + " " + count);
+            return true;
+        }
+
+        // True once the search has to end
+        private boolean checkInbox() {
+            String line;
+            while ((line = inbox.poll()) != null) {
+                if (line.equals(STEAL)) stealWanted = true;
+                else if (line.equals(STOP)) stopped = true;
+                else if (line.equals(QUIT)) quit = true;
+            }
+            return stopped || quit;
+        }
+    }
+
+    // Connects to the coordinator on the given port and works until told to quit
+    private static void work(int port) throws IOException, InterruptedException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            Worker worker = new Worker(new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true));
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Thread reader = new Thread(() -> {
+                try {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        worker.inbox.add(line);
+                    }
+                } catch (IOException e) {
+                    // Same as the coordinator hanging up
+                }
+                worker.inbox.add(QUIT);
+            }, "distributed-worker-reader");
+            reader.setDaemon(true);
+            reader.start();
+            worker.run();
+        }
+    }
+
+    // Usage: DistributedSolver <puzzle file> [workers] [split depth]
+    //        DistributedSolver worker <port>, which the coordinator runs for itself
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 2 && args[0].equals("worker")) {
+            work(Integer.parseInt(args[1]));
+            return;
+        }
+        if (args.length == 0) {
+            System.out.println("Usage: DistributedSolver <puzzle file> [workers] [split depth]");
+            return;
+        }
+        int[][] vals = Sudoku.readBoard(new File(args[0]));
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+        int splitDepth = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SPLIT_DEPTH;
+        try (DistributedSolver solver = new DistributedSolver(vals.length, workers, splitDepth)) {
+            SearchStats stats = new SearchStats();
+            long start = System.nanoTime();
+            boolean solved = solver.solve(vals, stats);
+            long nanos = System.nanoTime() - start;
+            System.out.printf("%s %s on %d workers in %.2f ms, %d nodes, %d steals%n", args[0],
+                    solved ? "solved" : "has no solution", workers, nanos / 1e6, stats.getNodes(), solver.getSteals());
+            if (solved) Sudoku.printBoard(vals);
+        }
+    }
+}
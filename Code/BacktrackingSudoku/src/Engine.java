@@ -0,0 +1,31 @@
+/**
+ * The solving engines Sudoku.solveFromFile can hand a board to.
+ */
+public enum Engine {
+    // The original row-major backtracker in Sudoku.solve
+    BACKTRACKING,
+    // Row-major backtracking with row/column/partition candidate bitmasks
+    BITMASK,
+    // Bitmask candidates, branching on the cell with the fewest of them
+    MRV,
+    // Exact cover with Algorithm X over flat-array dancing links
+    DANCING_LINKS,
+    // MRV search split into fork/join tasks over every core
+    PARALLEL,
+    // Row-major backtracking with an explicit trail instead of recursion
+    ITERATIVE,
+    // CNF encoding solved by the built-in CDCL SAT solver
+    SAT,
+    // MRV with randomized ties and value order, restarted on the Luby schedule
+    RESTARTS,
+    // MRV with conflict-directed backjumping and small learnt nogoods
+    BACKJUMPING,
+    // The generic ConstraintSolver, with all-different constraints per unit
+    CSP,
+    // Several engines raced on separate threads; the first answer wins
+    PORTFOLIO,
+    // MRV by rescanning the whole board each node, on the Vector API kernel when it loads
+    SCAN,
+    // MRV with the board, masks and trail off the heap, from the OffHeap module on JDK 21 with --enable-preview
+    OFF_HEAP;
+}
@@ -0,0 +1,74 @@
+/**
+ * Row-major backtracking without recursion. The empty cells are indexed once up front
+ * so givens are never visited during search, and the trail (candidates left and value
+ * placed at each depth) lives in preallocated primitive arrays, so the search depth
+ * is bounded by the heap instead of the thread stack. Works on boards up to 64x64.
+ */
+public class IterativeSolver implements BoardSolver {
+
+    private final int boardSize;
+    private final CandidateMasks masks;
+    private final int[] emptyRow;
+    private final int[] emptyCol;
+    private final long[] remaining;
+    private final int[] placed;
+
+    public IterativeSolver(int boardSize) {
+        this.boardSize = boardSize;
+        this.masks = new CandidateMasks(boardSize);
+        int cells = boardSize * boardSize;
+        this.emptyRow = new int[cells];
+        this.emptyCol = new int[cells];
+        this.remaining = new long[cells];
+        this.placed = new int[cells];
+    }
+
+    @Override
+    public boolean solve(int[][] vals, SearchStats stats) {
+        if (!masks.load(vals)) return false;
+        int emptyCount = 0;
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                if (vals[i][j] != 0) continue;
+                emptyRow[emptyCount] = i;
+                emptyCol[emptyCount] = j;
+                placed[emptyCount] = 0;
+                emptyCount++;
+            }
+        }
+        if (emptyCount == 0) return true;
+
+        int depth = 0;
+        remaining[0] = masks.candidates(emptyRow[0], emptyCol[0]);
+        if (stats != null) stats.node(0);
+        while (depth >= 0) {
+            int i = emptyRow[depth];
+            int j = emptyCol[depth];
+            // Take back whatever we tried here last time
+            if (placed[depth] != 0) {
+                masks.unassign(i, j, placed[depth]);
+                placed[depth] = 0;
+            }
+            long candidates = remaining[depth];
+            if (candidates == 0) {
+                // Nothing left to try here, so we backtrack
+                vals[i][j] = 0;
+                if (stats != null) stats.backtrack(depth);
+                depth--;
+                continue;
+            }
+            long bit = candidates & -candidates;
+            remaining[depth] = candidates ^ bit;
+            int v = Long.numberOfTrailingZeros(bit) + 1;
+            vals[i][j] = v;
+            masks.assign(i, j, v);
+            placed[depth] = v;
+
+            depth++;
+            if (depth == emptyCount) return true;
+            remaining[depth] = masks.candidates(emptyRow[depth], emptyCol[depth]);
+            if (stats != null) stats.node(depth);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,296 @@
+import java.util.Arrays;
+
+/**
+ * Fills in what can be deduced without guessing, the way a person would: naked singles,
+ * hidden singles, naked pairs, and pointing pairs / box-line reduction. The rules are
+ * applied over and over until none of them changes anything.
+ *
+ * Unlike CandidateMasks this keeps a candidate mask per cell, because pairs and pointing
+ * remove candidates that are not explained by any value already on the board.
+ */
+public class LogicalSolver {
+
+    private final int boardSize;
+    private final int partitionSize;
+    private final long full;
+    // Rows, then columns, then partitions, each as a list of cell indices
+    private final int[][] units;
+    private final int[][] peers;
+    private final int[] board;
+    private final long[] candidates;
+    private int placements;
+    // Set whenever a pass removes a candidate or places a value
+    private boolean changed;
+
+    public LogicalSolver(int boardSize) {
+        if (boardSize < 1 || boardSize > CandidateMasks.MAX_SIZE) {
+            throw new IllegalArgumentException("Logical solving only supports boards up to " + CandidateMasks.MAX_SIZE + "x" + CandidateMasks.MAX_SIZE);
+        }
+        this.boardSize = boardSize;
+        this.partitionSize = (int) Math.sqrt(boardSize);
+        this.full = boardSize == 64 ? -1L : (1L << boardSize) - 1;
+        int cells = boardSize * boardSize;
+        this.board = new int[cells];
+        this.candidates = new long[cells];
+
+        units = new int[3 * boardSize][boardSize];
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                int cell = i * boardSize + j;
+                int box = (i / partitionSize) * partitionSize + j / partitionSize;
+                int inBox = (i % partitionSize) * partitionSize + j % partitionSize;
+                units[i][j] = cell;
+                units[boardSize + j][i] = cell;
+                units[2 * boardSize + box][inBox] = cell;
+            }
+        }
+
+        // Every other cell in the same row, column or partition, each listed once
+        peers = new int[cells][];
+        boolean[] seen = new boolean[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            int i = cell / boardSize;
+            int j = cell % boardSize;
+            int box = (i / partitionSize) * partitionSize + j / partitionSize;
+            int[] list = new int[3 * boardSize];
+            int count = 0;
+            for (int[] unit : new int[][]{units[i], units[boardSize + j], units[2 * boardSize + box]}) {
+                for (int peer : unit) {
+                    if (peer == cell || seen[peer]) continue;
+                    seen[peer] = true;
+                    list[count++] = peer;
+                }
+            }
+            for (int k = 0; k < count; k++) seen[list[k]] = false;
+            peers[cell] = Arrays.copyOf(list, count);
+        }
+    }
+
+    // Deduces as much as possible and writes the placed values into vals.
+    // Returns false if the board turns out to have no solution.
+    public boolean propagate(int[][] vals) {
+        if (!load(vals)) return false;
+        boolean consistent = propagate();
+        if (consistent) store(vals);
+        return consistent;
+    }
+
+    // How many cells the last propagate call filled in
+    public int getPlacements() {
+        return placements;
+    }
+
+    // The methods below let a search drive the solver one decision at a time,
+    // with propagation after every guess
+
+    boolean load(int[][] vals) {
+        placements = 0;
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                int v = vals[i][j];
+                if (v < 0 || v > boardSize) return false;
+                board[i * boardSize + j] = v;
+                candidates[i * boardSize + j] = v == 0 ? full : 0;
+            }
+        }
+        for (int cell = 0; cell < board.length; cell++) {
+            int v = board[cell];
+            if (v == 0) continue;
+            long bit = 1L << (v - 1);
+            for (int peer : peers[cell]) {
+                if (board[peer] == v) return false;
+                candidates[peer] &= ~bit;
+            }
+        }
+        for (int cell = 0; cell < board.length; cell++) {
+            if (board[cell] == 0 && candidates[cell] == 0) return false;
+        }
+        return true;
+    }
+
+    void store(int[][] vals) {
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                vals[i][j] = board[i * boardSize + j];
+            }
+        }
+    }
+
+    boolean propagate() {
+        changed = true;
+        while (changed) {
+            changed = false;
+
+            // Naked singles: a cell with only one candidate left
+            for (int cell = 0; cell < board.length; cell++) {
+                if (board[cell] != 0) continue;
+                long c = candidates[cell];
+                if (c == 0) return false;
+                if (Long.bitCount(c) == 1 && !place(cell, Long.numberOfTrailingZeros(c) + 1)) return false;
+            }
+
+            // Hidden singles: a value that fits in only one cell of a unit
+            for (int[] unit : units) {
+                long once = 0;
+                long more = 0;
+                long placed = 0;
+                for (int cell : unit) {
+                    if (board[cell] != 0) {
+                        placed |= 1L << (board[cell] - 1);
+                    } else {
+                        more |= once & candidates[cell];
+                        once |= candidates[cell];
+                    }
+                }
+                // Some value has nowhere left to go in this unit
+                if ((once | placed) != full) return false;
+                once &= ~more;
+                while (once != 0) {
+                    long bit = once & -once;
+                    once ^= bit;
+                    for (int cell : unit) {
+                        if ((candidates[cell] & bit) == 0) continue;
+                        if (!place(cell, Long.numberOfTrailingZeros(bit) + 1)) return false;
+                        break;
+                    }
+                }
+            }
+            // Only move on to the pricier rules once the singles have dried up
+            if (changed) continue;
+
+            // Naked pairs: two cells in a unit with the same two candidates own both values
+            for (int[] unit : units) {
+                for (int a = 0; a < boardSize; a++) {
+                    long pair = candidates[unit[a]];
+                    if (board[unit[a]] != 0 || Long.bitCount(pair) != 2) continue;
+                    for (int b = a + 1; b < boardSize; b++) {
+                        if (board[unit[b]] != 0 || candidates[unit[b]] != pair) continue;
+                        for (int k = 0; k < boardSize; k++) {
+                            int cell = unit[k];
+                            if (k == a || k == b || (candidates[cell] & pair) == 0) continue;
+                            if (!eliminate(cell, pair)) return false;
+                        }
+                    }
+                }
+            }
+
+            // Pointing pairs: a value confined to one row or column inside a partition
+            // is removed from the rest of that row or column
+            for (int box = 0; box < boardSize; box++) {
+                for (int v = 0; v < boardSize; v++) {
+                    long bit = 1L << v;
+                    int row = -2;
+                    int col = -2;
+                    for (int cell : units[2 * boardSize + box]) {
+                        if ((candidates[cell] & bit) == 0) continue;
+                        int i = cell / boardSize;
+                        int j = cell % boardSize;
+                        row = row == -2 || row == i ? i : -1;
+                        col = col == -2 || col == j ? j : -1;
+                    }
+                    if (row >= 0 && !clearOutsideBox(units[row], box, bit)) return false;
+                    if (col >= 0 && !clearOutsideBox(units[boardSize + col], box, bit)) return false;
+                }
+            }
+
+            // Box-line reduction: a value confined to one partition inside a row or column
+            // is removed from the rest of that partition
+            for (int line = 0; line < 2 * boardSize; line++) {
+                boolean isRow = line < boardSize;
+                int index = isRow ? line : line - boardSize;
+                for (int v = 0; v < boardSize; v++) {
+                    long bit = 1L << v;
+                    int box = -2;
+                    for (int cell : units[line]) {
+                        if ((candidates[cell] & bit) == 0) continue;
+                        int b = boxOf(cell);
+                        box = box == -2 || box == b ? b : -1;
+                    }
+                    if (box < 0) continue;
+                    for (int cell : units[2 * boardSize + box]) {
+                        if ((candidates[cell] & bit) == 0) continue;
+                        if ((isRow ? cell / boardSize : cell % boardSize) == index) continue;
+                        if (!eliminate(cell, bit)) return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    // Guesses v for the cell and propagates, false if that leads to a contradiction
+    boolean assign(int cell, int v) {
+        return place(cell, v) && propagate();
+    }
+
+    // The empty cell with the fewest candidates, or -1 if the board is full
+    int chooseCell() {
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int cell = 0; cell < board.length; cell++) {
+            if (board[cell] != 0) continue;
+            int count = Long.bitCount(candidates[cell]);
+            if (count < bestCount) {
+                best = cell;
+                bestCount = count;
+                if (count <= 1) break;
+            }
+        }
+        return best;
+    }
+
+    long candidatesOf(int cell) {
+        return candidates[cell];
+    }
+
+    int cells() {
+        return board.length;
+    }
+
+    void save(int[] boardCopy, long[] candidatesCopy) {
+        System.arraycopy(board, 0, boardCopy, 0, board.length);
+        System.arraycopy(candidates, 0, candidatesCopy, 0, candidates.length);
+    }
+
+    void restore(int[] boardCopy, long[] candidatesCopy) {
+        System.arraycopy(boardCopy, 0, board, 0, board.length);
+        System.arraycopy(candidatesCopy, 0, candidates, 0, candidates.length);
+    }
+
+    private boolean place(int cell, int v) {
+        long bit = 1L << (v - 1);
+        board[cell] = v;
+        candidates[cell] = 0;
+        placements++;
+        changed = true;
+        for (int peer : peers[cell]) {
+            if (board[peer] == v) return false;
+            if (board[peer] == 0 && (candidates[peer] & bit) != 0) {
+                if (!eliminate(peer, bit)) return false;
+            }
+        }
+        return true;
+    }
+
+    // Removes the bits from the cell's candidates, false if that leaves it with none
+    private boolean eliminate(int cell, long bits) {
+        candidates[cell] &= ~bits;
+        changed = true;
+        return candidates[cell] != 0;
+    }
+
+    // Removes bit from every cell of the line that is outside the partition
+    private boolean clearOutsideBox(int[] line, int box, long bit) {
+        for (int cell : line) {
+            if ((candidates[cell] & bit) == 0 || boxOf(cell) == box) continue;
+            if (!eliminate(cell, bit)) return false;
+        }
+        return true;
+    }
+
+    private int boxOf(int cell) {
+        int i = cell / boardSize;
+        int j = cell % boardSize;
+        return (i / partitionSize) * partitionSize + j / partitionSize;
+    }
+}
@@ -0,0 +1,115 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Backtracking that always branches on the empty cell with the fewest candidates
+ * (minimum remaining values), breaking ties by how many empty cells share its row,
+ * column and partition. As soon as any empty cell has no candidates left the
+ * branch fails, instead of only noticing once the row-major walk reaches it.
+ */
+public class MrvSolver implements BoardSolver {
+
+    private final int boardSize;
+    private final CandidateMasks masks;
+    // Empty cells as i * boardSize + j; cells[depth..emptyCount) are still unassigned
+    private final int[] cells;
+    private final int[] rowEmpty;
+    private final int[] colEmpty;
+    private final int[] boxEmpty;
+    private int emptyCount;
+    // Set by another thread to make the search give up, may be null
+    private AtomicBoolean stop;
+    private SearchStats stats;
+
+    public MrvSolver(int boardSize) {
+        this.boardSize = boardSize;
+        this.masks = new CandidateMasks(boardSize);
+        this.cells = new int[boardSize * boardSize];
+        this.rowEmpty = new int[boardSize];
+        this.colEmpty = new int[boardSize];
+        this.boxEmpty = new int[boardSize];
+    }
+
+    @Override
+    public boolean solve(int[][] vals, SearchStats stats) {
+        return solve(vals, stats, null);
+    }
+
+    // Gives up and returns false once stop is set
+    public boolean solve(int[][] vals, SearchStats stats, AtomicBoolean stop) {
+        this.stop = stop;
+        this.stats = stats;
+        if (!masks.load(vals)) return false;
+        emptyCount = 0;
+        for (int x = 0; x < boardSize; x++) {
+            rowEmpty[x] = 0;
+            colEmpty[x] = 0;
+            boxEmpty[x] = 0;
+        }
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                if (vals[i][j] != 0) continue;
+                cells[emptyCount++] = i * boardSize + j;
+                rowEmpty[i]++;
+                colEmpty[j]++;
+                boxEmpty[masks.box(i, j)]++;
+            }
+        }
+        return solve(vals, 0);
+    }
+
+    private boolean solve(int[][] vals, int depth) {
+        // Every empty cell has a value, so it is solved
+        if (depth == emptyCount) return true;
+        if (stop != null && stop.get()) return false;
+        if (stats != null) stats.node(depth);
+
+        // Find the most constrained cell, failing straight away on a dead one
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        int bestDegree = -1;
+        for (int k = depth; k < emptyCount; k++) {
+            int i = cells[k] / boardSize;
+            int j = cells[k] % boardSize;
+            int count = Long.bitCount(masks.candidates(i, j));
+            if (count == 0) {
+                if (stats != null) stats.backtrack(depth);
+                return false;
+            }
+            if (count > bestCount) continue;
+            int degree = rowEmpty[i] + colEmpty[j] + boxEmpty[masks.box(i, j)];
+            if (count < bestCount || degree > bestDegree) {
+                best = k;
+                bestCount = count;
+                bestDegree = degree;
+            }
+        }
+
+        int cell = cells[best];
+        cells[best] = cells[depth];
+        cells[depth] = cell;
+        int i = cell / boardSize;
+        int j = cell % boardSize;
+        int b = masks.box(i, j);
+
+        rowEmpty[i]--;
+        colEmpty[j]--;
+        boxEmpty[b]--;
+        long candidates = masks.candidates(i, j);
+        while (candidates != 0) {
+            long bit = candidates & -candidates;
+            candidates ^= bit;
+            int v = Long.numberOfTrailingZeros(bit) + 1;
+            vals[i][j] = v;
+            masks.assign(i, j, v);
+            if (solve(vals, depth + 1)) return true;
+            masks.unassign(i, j, v);
+        }
+        // Nothing left to try here, so we backtrack
+        vals[i][j] = 0;
+        rowEmpty[i]++;
+        colEmpty[j]++;
+        boxEmpty[b]++;
+        if (stats != null) stats.backtrack(depth);
+        return false;
+    }
+}
@@ -0,0 +1,166 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Splits the search tree at the first few branching levels into fork/join tasks,
+ * each working on its own copy of the board, and lets the pool's work stealing
+ * spread them over the worker threads. Below the split depth every task finishes
+ * its subtree with an MrvSolver. The first task to find a solution sets a shared
+ * flag that every other task checks before each node, so they all wind down.
+ * Each call to solve gets its own flag, so one instance can serve several threads.
+ */
+public class ParallelSolver implements BoardSolver {
+
+    public static final int DEFAULT_SPLIT_DEPTH = 3;
+
+    private final int boardSize;
+    private final int splitDepth;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<MrvSolver> solvers;
+
+    // Runs on the common pool
+    public ParallelSolver(int boardSize) {
+        this(boardSize, ForkJoinPool.commonPool(), DEFAULT_SPLIT_DEPTH);
+    }
+
+    public ParallelSolver(int boardSize, ForkJoinPool pool, int splitDepth) {
+        this.boardSize = boardSize;
+        this.splitDepth = splitDepth;
+        this.pool = pool;
+        this.solvers = ThreadLocal.withInitial(() -> new MrvSolver(boardSize));
+    }
+
+    @Override
+    public boolean solve(int[][] vals, SearchStats stats) {
+        Search search = new Search(stats);
+        pool.invoke(new SearchTask(search, copy(vals), 0));
+        int[][] result = search.solution;
+        if (result == null) return false;
+        for (int i = 0; i < boardSize; i++) {
+            System.arraycopy(result[i], 0, vals[i], 0, boardSize);
+        }
+        return true;
+    }
+
+    // The state shared by all tasks of one solve call
+    private static class Search {
+
+        private final AtomicBoolean found = new AtomicBoolean();
+        private volatile int[][] solution;
+        // Every task counts into its own stats and adds them here when it is done
+        private final SearchStats stats;
+
+        private Search(SearchStats stats) {
+            this.stats = stats;
+        }
+
+        private void publish(int[][] vals) {
+            if (found.compareAndSet(false, true)) solution = vals;
+        }
+    }
+
+    private int[][] copy(int[][] vals) {
+        int[][] copy = new int[boardSize][];
+        for (int i = 0; i < boardSize; i++) {
+            copy[i] = vals[i].clone();
+        }
+        return copy;
+    }
+
+    // Tasks only ever run inside the pool and are never serialized
+    @SuppressWarnings("serial")
+    private class SearchTask extends RecursiveAction {
+
+        private final Search search;
+        private final int[][] vals;
+        private final int depth;
+
+        SearchTask(Search search, int[][] vals, int depth) {
+            this.search = search;
+            this.vals = vals;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (search.found.get()) return;
+            if (depth >= splitDepth) {
+                SearchStats stats = search.stats == null ? null : new SearchStats(search.stats.getBandWidth());
+                if (solvers.get().solve(vals, stats, search.found)) search.publish(vals);
+                if (stats != null) search.stats.add(stats);
+                return;
+            }
+
+            CandidateMasks masks = new CandidateMasks(boardSize);
+            if (!masks.load(vals)) return;
+            // Fill in forced cells here, they are not worth a task of their own
+            int bestI;
+            int bestJ;
+            long bestCandidates;
+            while (true) {
+                bestI = -1;
+                bestJ = -1;
+                bestCandidates = 0;
+                int bestCount = Integer.MAX_VALUE;
+                for (int i = 0; i < boardSize; i++) {
+                    for (int j = 0; j < boardSize; j++) {
+                        if (vals[i][j] != 0) continue;
+                        long candidates = masks.candidates(i, j);
+                        int count = Long.bitCount(candidates);
+                        if (count == 0) return;
+                        if (count < bestCount) {
+                            bestI = i;
+                            bestJ = j;
+                            bestCandidates = candidates;
+                            bestCount = count;
+                        }
+                    }
+                }
+                if (bestI < 0) {
+                    search.publish(vals);
+                    return;
+                }
+                if (bestCount > 1) break;
+                int v = Long.numberOfTrailingZeros(bestCandidates) + 1;
+                vals[bestI][bestJ] = v;
+                masks.assign(bestI, bestJ, v);
+            }
+
+            ArrayList<SearchTask> tasks = new ArrayList<>(Long.bitCount(bestCandidates));
+            while (bestCandidates != 0) {
+                long bit = bestCandidates & -bestCandidates;
+                bestCandidates ^= bit;
+                int[][] child = copy(vals);
+                child[bestI][bestJ] = Long.numberOfTrailingZeros(bit) + 1;
+                tasks.add(new SearchTask(search, child, depth + 1));
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    // Reports how solve time scales from 1 thread up to every core on the given puzzles
+    public static void main(String[] args) throws FileNotFoundException {
+        String[] files = args.length > 0 ? args : new String[]{"Data/sudoku25New.txt", "Data/sudoku36Hard.txt"};
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (String filename : files) {
+            int[][] board = Sudoku.readBoard(new File(filename));
+            System.out.println(filename);
+            double baseline = 0;
+            for (int threads = 1; threads <= cores; threads++) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                ParallelSolver solver = new ParallelSolver(board.length, pool, DEFAULT_SPLIT_DEPTH);
+                int[][] vals = solver.copy(board);
+                long start = System.nanoTime();
+                boolean solved = solver.solve(vals);
+                double ms = (System.nanoTime() - start) / 1e6;
+                pool.shutdown();
+                if (threads == 1) baseline = ms;
+                System.out.printf("%3d threads %10.1f ms  speedup %5.2fx  %s%n", threads, ms, baseline / ms, solved ? "solved" : "no solution");
+            }
+        }
+    }
+}
@@ -0,0 +1,273 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Races several strategies on the same board, each on its own thread and its own copy
+ * of the board. No single engine wins everywhere: the row-major backtracker is hard to
+ * beat on easy boards, MRV on most hard ones, and propagation-heavy search on the ones
+ * built to defeat guessing. The first strategy to answer, solved or proved unsolvable,
+ * wins and the rest are cancelled.
+ *
+ * Cancellation is cooperative. Every engine reports each node it expands to its
+ * SearchStats, so the racers are handed stats that check a shared flag there and unwind
+ * once it is set. The race waits for the losers to stop before it returns, so no search
+ * keeps burning a core in the background.
+ *
+ * Wins are counted per strategy, which is what to look at when tuning the default engine,
+ * and every race appends its winner to Output/portfolio.csv, also when the portfolio runs
+ * as Engine.PORTFOLIO behind a SudokuSolver.
+ */
+public class PortfolioSolver implements BoardSolver {
+
+    public static final File LOG = new File("Output/portfolio.csv");
+
+    // Shared by every portfolio; daemon threads so an idle pool never keeps the JVM alive
+    private static final ExecutorService RACERS = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "portfolio-racer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Cancelled CANCELLED = new Cancelled();
+
+    private final SudokuSolver[] strategies;
+    private final AtomicLongArray wins;
+
+    // The row-major backtracker, MRV, dancing links and presolved SAT
+    public PortfolioSolver() {
+        this(Arrays.asList(
+                new SudokuSolver(Engine.BACKTRACKING),
+                new SudokuSolver(Engine.MRV),
+                new SudokuSolver(Engine.DANCING_LINKS),
+                new SudokuSolver(Engine.SAT, true)));
+    }
+
+    public PortfolioSolver(List<SudokuSolver> strategies) {
+        if (strategies.isEmpty()) throw new IllegalArgumentException("A portfolio needs at least one strategy");
+        for (SudokuSolver strategy : strategies) {
+            // A portfolio inside a portfolio would race itself
+            if (strategy.getEngine() == Engine.PORTFOLIO) throw new IllegalArgumentException("Portfolios cannot be nested");
+        }
+        this.strategies = strategies.toArray(new SudokuSolver[0]);
+        this.wins = new AtomicLongArray(this.strategies.length);
+    }
+
+    @Override
+    public boolean solve(int[][] vals, SearchStats stats) {
+        return race(vals, stats).isSolved();
+    }
+
+    // Solves the board in place with whichever strategy answers first
+    public Outcome race(int[][] vals, SearchStats stats) {
+        return race(vals.length + "x" + vals.length, vals, stats);
+    }
+
+    // Same as race, naming the puzzle in the log
+    public Outcome race(String puzzle, int[][] vals, SearchStats stats) {
+        long start = System.nanoTime();
+        AtomicBoolean stop = new AtomicBoolean();
+        CompletionService<Outcome> finished = new ExecutorCompletionService<>(RACERS);
+        for (int k = 0; k < strategies.length; k++) {
+            int index = k;
+            int[][] board = copy(vals);
+            Racer racer = new Racer(stop, stats != null);
+            finished.submit(() -> {
+                boolean solved = strategies[index].solve(board, racer);
+                return new Outcome(strategies[index], index, solved, board, racer, 0);
+            });
+        }
+
+        Outcome winner = null;
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (int k = 0; k < strategies.length; k++) {
+            try {
+                Outcome outcome = finished.take().get();
+                if (winner == null) {
+                    winner = outcome;
+                    stop.set(true);
+                }
+            } catch (ExecutionException e) {
+                // Losers unwind with CANCELLED; anything else only knocks out that strategy
+                if (e.getCause() != CANCELLED && failure == null) failure = e.getCause();
+            } catch (InterruptedException e) {
+                // Still collect every racer, but stop them first
+                stop.set(true);
+                interrupted = true;
+                k--;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        if (winner == null) {
+            throw new IllegalStateException("Every strategy in the portfolio failed", failure);
+        }
+
+        wins.incrementAndGet(winner.index);
+        if (winner.solved) {
+            for (int i = 0; i < vals.length; i++) {
+                System.arraycopy(winner.board[i], 0, vals[i], 0, vals.length);
+            }
+        }
+        if (stats != null) stats.add(winner.stats);
+        Outcome outcome = new Outcome(winner.strategy, winner.index, winner.solved, vals, winner.stats, System.nanoTime() - start);
+        log(puzzle, outcome);
+        return outcome;
+    }
+
+    // Appends one row per race: time, puzzle, winner, solved, nanos, nodes
+    private static synchronized void log(String puzzle, Outcome outcome) {
+        boolean header = !LOG.exists();
+        try (PrintWriter out = new PrintWriter(new FileWriter(LOG, true))) {
+            if (header) out.println("time,puzzle,winner,solved,nanos,nodes");
+            out.println(LocalDateTime.now() + "," + puzzle + "," + label(outcome.getWinner()) + "," + outcome.isSolved() + ","
+                    + outcome.getNanos() + "," + outcome.getNodes());
+        } catch (IOException e) {
+            System.out.println("Error writing to file " + LOG);
+        }
+    }
+
+    public int getStrategies() {
+        return strategies.length;
+    }
+
+    public SudokuSolver getStrategy(int index) {
+        return strategies[index];
+    }
+
+    public long getWins(int index) {
+        return wins.get(index);
+    }
+
+    // How a strategy is named in the log, e.g. "SAT+presolve"
+    public static String label(SudokuSolver strategy) {
+        return strategy.getEngine() + (strategy.isPresolve() ? "+presolve" : "");
+    }
+
+    private static int[][] copy(int[][] vals) {
+        int[][] copy = new int[vals.length][];
+        for (int i = 0; i < vals.length; i++) {
+            copy[i] = vals[i].clone();
+        }
+        return copy;
+    }
+
+    // Which strategy won a race and what it found
+    public static class Outcome {
+
+        private final SudokuSolver strategy;
+        private final int index;
+        private final boolean solved;
+        private final int[][] board;
+        private final SearchStats stats;
+        private final long nanos;
+
+        private Outcome(SudokuSolver strategy, int index, boolean solved, int[][] board, SearchStats stats, long nanos) {
+            this.strategy = strategy;
+            this.index = index;
+            this.solved = solved;
+            this.board = board;
+            this.stats = stats;
+            this.nanos = nanos;
+        }
+
+        public SudokuSolver getWinner() {
+            return strategy;
+        }
+
+        public int getWinnerIndex() {
+            return index;
+        }
+
+        public boolean isSolved() {
+            return solved;
+        }
+
+        public int[][] getBoard() {
+            return board;
+        }
+
+        // Nodes the winner expanded; full statistics only if the race was given stats
+        public long getNodes() {
+            return ((Racer) stats).nodes;
+        }
+
+        // Wall time of the whole race, including stopping the losers
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    // Stats handed to one racer: they count nodes, check the stop flag at every node and
+    // backtrack, and only do the full timing bookkeeping when the caller asked for stats
+    private static class Racer extends SearchStats {
+
+        private final AtomicBoolean stop;
+        private final boolean record;
+        private long nodes;
+
+        private Racer(AtomicBoolean stop, boolean record) {
+            this.stop = stop;
+            this.record = record;
+        }
+
+        @Override
+        public void node(int depth) {
+            if (stop.get()) throw CANCELLED;
+            nodes++;
+            if (record) super.node(depth);
+        }
+
+        @Override
+        public void backtrack(int depth) {
+            if (stop.get()) throw CANCELLED;
+            if (record) super.backtrack(depth);
+        }
+    }
+
+    // Thrown through a losing engine to unwind it; shared, so it carries no stack trace
+    @SuppressWarnings("serial")
+    private static class Cancelled extends RuntimeException {
+
+        private Cancelled() {
+            super("Cancelled by the portfolio", null, false, false);
+        }
+    }
+
+    // Usage: PortfolioSolver <puzzle files...>
+    // Every race appends its row to Output/portfolio.csv; the totals are printed at the end
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: PortfolioSolver <puzzle files...>");
+            return;
+        }
+        PortfolioSolver portfolio = new PortfolioSolver();
+        for (String filename : args) {
+            int[][] vals;
+            try {
+                vals = Sudoku.readBoard(new File(filename));
+            } catch (FileNotFoundException e) {
+                System.out.println("Input file not found: " + filename);
+                continue;
+            }
+            Outcome outcome = portfolio.race(filename, vals, null);
+            System.out.printf("%-36s %-22s %-5b %10.2f ms %12d nodes%n",
+                    filename, label(outcome.getWinner()), outcome.isSolved(), outcome.getNanos() / 1e6, outcome.getNodes());
+        }
+        for (int k = 0; k < portfolio.getStrategies(); k++) {
+            System.out.println(label(portfolio.getStrategy(k)) + " won " + portfolio.getWins(k));
+        }
+    }
+}
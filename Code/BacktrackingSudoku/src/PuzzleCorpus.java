@@ -0,0 +1,231 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * Many puzzles packed into one binary file that is memory-mapped rather than parsed.
+ * Scanner reads a text board token by token, which dominates the time on big corpora;
+ * here a board is one byte per cell, read straight out of the page cache.
+ *
+ * Layout, big-endian:
+ *
+ *     magic "SDKC" | version (int) | puzzle count (int) | index offset (long)
+ *     puzzle records, one after another: board size (1 byte), then size * size cells
+ *     index: the offset of every record (long each)
+ *
+ * The index goes last so the converter can stream records without knowing the count
+ * up front. Cells hold 0 for empty, so boards go up to 255x255. The whole file is one
+ * mapping, which caps a corpus at 2 GB (over 25 million 9x9 puzzles).
+ *
+ * An open corpus is read with absolute gets only, so any number of threads can share it.
+ */
+public class PuzzleCorpus {
+
+    public static final String EXTENSION = ".corpus";
+    public static final int MAGIC = 0x53444B43;
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 20;
+    public static final int MAX_SIZE = 255;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+    private final int indexOffset;
+
+    private PuzzleCorpus(MappedByteBuffer buffer, int count, int indexOffset) {
+        this.buffer = buffer;
+        this.count = count;
+        this.indexOffset = indexOffset;
+    }
+
+    // Maps a corpus file; the mapping stays valid after the channel is closed
+    public static PuzzleCorpus open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) throw new IOException("Corpus is over 2 GB: " + file);
+            if (length < HEADER_BYTES) throw new IOException("Not a puzzle corpus: " + file);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.getInt(0) != MAGIC) throw new IOException("Not a puzzle corpus: " + file);
+            if (buffer.getInt(4) != VERSION) throw new IOException("Unsupported corpus version " + buffer.getInt(4) + ": " + file);
+            int count = buffer.getInt(8);
+            long indexOffset = buffer.getLong(12);
+            if (count < 0 || indexOffset < HEADER_BYTES || indexOffset + 8L * count != length) {
+                throw new IOException("Corrupt corpus index: " + file);
+            }
+            return new PuzzleCorpus(buffer, count, (int) indexOffset);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getBoardSize(int index) {
+        return buffer.get(offset(index)) & 0xFF;
+    }
+
+    // A fresh board for puzzle index
+    public int[][] get(int index) {
+        int boardSize = getBoardSize(index);
+        int[][] vals = new int[boardSize][boardSize];
+        read(index, vals);
+        return vals;
+    }
+
+    // Fills a board of the right size with puzzle index, so a solver loop can reuse one array
+    public void read(int index, int[][] vals) {
+        int at = offset(index);
+        int boardSize = buffer.get(at++) & 0xFF;
+        if (vals.length != boardSize) throw new IllegalArgumentException("Puzzle " + index + " is " + boardSize + "x" + boardSize);
+        for (int i = 0; i < boardSize; i++) {
+            int[] row = vals[i];
+            for (int j = 0; j < boardSize; j++) {
+                row[j] = buffer.get(at++) & 0xFF;
+            }
+        }
+    }
+
+    // The cells of puzzle index, row-major, as a read-only view into the mapping
+    public ByteBuffer cells(int index) {
+        int at = offset(index);
+        int boardSize = buffer.get(at) & 0xFF;
+        ByteBuffer view = buffer.duplicate();
+        view.position(at + 1).limit(at + 1 + boardSize * boardSize);
+        return view.slice().asReadOnlyBuffer();
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index >= count) throw new IndexOutOfBoundsException("No puzzle " + index + " in a corpus of " + count);
+        return (int) buffer.getLong(indexOffset + 8 * index);
+    }
+
+    // Packs every board in a Data/*.txt style file, a file of boards back to back, or a
+    // directory of either into dest. Returns the number of puzzles written.
+    public static int convert(File input, File dest) throws IOException {
+        File[] files;
+        if (input.isDirectory()) {
+            files = input.listFiles((dir, name) -> name.endsWith(".txt"));
+            if (files == null) files = new File[0];
+            Arrays.sort(files);
+        } else {
+            files = new File[]{input};
+        }
+        try (Writer writer = new Writer(dest)) {
+            for (File file : files) {
+                try (Scanner scanner = new Scanner(file)) {
+                    while (scanner.hasNextInt()) {
+                        writer.add(Sudoku.readBoard(scanner));
+                    }
+                } catch (FileNotFoundException e) {
+                    System.out.println("Input file not found: " + file);
+                }
+            }
+            writer.finish();
+            return writer.count;
+        }
+    }
+
+    // Packs boards into dest in the order given
+    public static int write(File dest, List<int[][]> boards) throws IOException {
+        try (Writer writer = new Writer(dest)) {
+            for (int[][] vals : boards) {
+                writer.add(vals);
+            }
+            writer.finish();
+            return writer.count;
+        }
+    }
+
+    // Streams records into a temporary file next to dest; finish writes the index, fills in
+    // the header and moves it into place. Closing without finishing deletes it, so a
+    // failed conversion never leaves a corpus that only looks complete.
+    private static class Writer implements Closeable {
+
+        private final File dest;
+        private final File temp;
+        private final DataOutputStream out;
+        private long[] offsets = new long[64];
+        private int count;
+        private long position = HEADER_BYTES;
+        private boolean finished;
+
+        private Writer(File dest) throws IOException {
+            this.dest = dest;
+            this.temp = File.createTempFile(dest.getName(), ".tmp", dest.getAbsoluteFile().getParentFile());
+            this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16));
+            // Count and index offset are filled in once the records are written
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(0);
+            out.writeLong(0);
+        }
+
+        private void add(int[][] vals) throws IOException {
+            int boardSize = vals.length;
+            if (boardSize > MAX_SIZE) throw new IOException("Boards over " + MAX_SIZE + "x" + MAX_SIZE + " do not fit a byte per cell");
+            byte[] record = new byte[1 + boardSize * boardSize];
+            record[0] = (byte) boardSize;
+            int at = 1;
+            for (int[] row : vals) {
+                for (int v : row) {
+                    if (v < 0 || v > boardSize) throw new IOException("Value " + v + " is off a " + boardSize + "x" + boardSize + " board");
+                    record[at++] = (byte) v;
+                }
+            }
+            if (position + record.length + 8L * (count + 1) > Integer.MAX_VALUE) throw new IOException("Corpus would be over 2 GB");
+            out.write(record);
+            if (count == offsets.length) offsets = Arrays.copyOf(offsets, count * 2);
+            offsets[count++] = position;
+            position += record.length;
+        }
+
+        private void finish() throws IOException {
+            for (int k = 0; k < count; k++) {
+                out.writeLong(offsets[k]);
+            }
+            out.close();
+            try (RandomAccessFile header = new RandomAccessFile(temp, "rw")) {
+                header.seek(8);
+                header.writeInt(count);
+                header.writeLong(position);
+            }
+            Files.move(temp.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            finished = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (finished) return;
+            try {
+                out.close();
+            } finally {
+                Files.deleteIfExists(temp.toPath());
+            }
+        }
+    }
+
+    // Usage: PuzzleCorpus <text file or directory> <corpus file>
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: PuzzleCorpus <text file or directory> <corpus file>");
+            return;
+        }
+        long start = System.nanoTime();
+        int count = convert(new File(args[0]), new File(args[1]));
+        System.out.printf("Packed %d puzzles into %s (%d bytes) in %.1f ms%n",
+                count, args[1], new File(args[1]).length(), (System.nanoTime() - start) / 1e6);
+    }
+}
@@ -0,0 +1,261 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Makes puzzles with exactly one solution and a chosen difficulty, for benchmark corpora
+ * far bigger than the handful of boards in Data.
+ *
+ * A puzzle starts as a random full board, found by the CSP engine on an empty board
+ * with a seeded value order. Cells are then emptied in a random order, each one only
+ * if the puzzle stays unique, until grading it takes at least the target number of MRV
+ * search nodes. MRV places one value per node, so a puzzle with e empty cells costs at
+ * least e nodes and everything past that is backtracking. If emptying every cell it can
+ * does not reach the target, the generator starts over from a new board, up to
+ * MAX_ATTEMPTS times, and keeps the hardest puzzle it made.
+ *
+ * Puzzle k of a corpus only depends on the seed and k, so a corpus comes out the same
+ * however many threads generate it.
+ */
+public class PuzzleGenerator {
+
+    public static final long DEFAULT_SEED = 1;
+    public static final int MAX_ATTEMPTS = 8;
+    public static final int FILL_NODES_PER_CELL = 4;
+
+    private final int boardSize;
+    private final long seed;
+    private final long targetNodes;
+    private final SolutionCounter counter;
+    private final SudokuSolver grader;
+
+    public PuzzleGenerator(int boardSize, long seed, long targetNodes) {
+        int partitionSize = (int) Math.sqrt(boardSize);
+        if (boardSize < 4 || boardSize > CandidateMasks.MAX_SIZE || partitionSize * partitionSize != boardSize) {
+            throw new IllegalArgumentException("Cannot generate " + boardSize + "x" + boardSize + " boards");
+        }
+        this.boardSize = boardSize;
+        this.seed = seed;
+        this.targetNodes = targetNodes;
+        this.counter = new SolutionCounter(boardSize);
+        this.grader = new SudokuSolver(Engine.MRV);
+    }
+
+    // Puzzle number index of this generator's corpus
+    public Puzzle generate(int index) {
+        Puzzle best = null;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Random random = new Random(mix(seed, index, attempt));
+            Puzzle puzzle = dig(fill(random), random);
+            if (best == null || puzzle.nodes > best.nodes) best = puzzle;
+            if (puzzle.nodes >= targetNodes) break;
+        }
+        return best;
+    }
+
+    // Puzzles 0 to count - 1, in order, generated on the given number of threads
+    public List<Puzzle> generate(int count, int threads) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Puzzle>> futures = new ArrayList<>();
+            for (int k = 0; k < count; k++) {
+                int index = k;
+                futures.add(workers.submit(() -> generate(index)));
+            }
+            List<Puzzle> puzzles = new ArrayList<>();
+            for (Future<Puzzle> future : futures) {
+                puzzles.add(future.get());
+            }
+            return puzzles;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Generating a puzzle failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    // Solving an empty board with a random value order has a heavy tail, so a fill that
+    // runs past FILL_NODES_PER_CELL nodes per cell is dropped for one with the next seed
+    private int[][] fill(Random random) {
+        while (true) {
+            int[][] vals = new int[boardSize][boardSize];
+            CspSolver solver = new CspSolver(boardSize, Collections.<CspSolver.Cage>emptyList(),
+                    ConstraintSolver.MIN_DOMAIN, ConstraintSolver.random(random.nextLong()));
+            try {
+                if (solver.solve(vals, new NodeLimit((long) FILL_NODES_PER_CELL * boardSize * boardSize))) return vals;
+            } catch (NodeLimit.Reached e) {
+                // Try again with the next seed
+            }
+        }
+    }
+
+    private Puzzle dig(int[][] solution, Random random) {
+        int[][] vals = copy(solution);
+        int[] order = new int[boardSize * boardSize];
+        for (int k = 0; k < order.length; k++) order[k] = k;
+        for (int k = order.length - 1; k > 0; k--) {
+            int swap = random.nextInt(k + 1);
+            int cell = order[k];
+            order[k] = order[swap];
+            order[swap] = cell;
+        }
+        long nodes = 0;
+        int givens = order.length;
+        for (int cell : order) {
+            int i = cell / boardSize;
+            int j = cell % boardSize;
+            int v = vals[i][j];
+            vals[i][j] = 0;
+            // The counter leaves a solution behind in the board it is given
+            if (!counter.isUnique(copy(vals))) {
+                vals[i][j] = v;
+                continue;
+            }
+            givens--;
+            nodes = grade(vals);
+            if (nodes >= targetNodes) break;
+        }
+        return new Puzzle(vals, solution, nodes, givens);
+    }
+
+    // MRV nodes to solve the board, counting no further than the target
+    private long grade(int[][] vals) {
+        NodeLimit stats = new NodeLimit(targetNodes);
+        try {
+            grader.solve(copy(vals), stats);
+        } catch (NodeLimit.Reached e) {
+            return targetNodes;
+        }
+        return stats.getNodes();
+    }
+
+    private int[][] copy(int[][] vals) {
+        int[][] copy = new int[boardSize][];
+        for (int i = 0; i < boardSize; i++) {
+            copy[i] = vals[i].clone();
+        }
+        return copy;
+    }
+
+    // splitmix64 over the seed, puzzle and attempt, so nearby indices get unrelated streams
+    private static long mix(long seed, int index, int attempt) {
+        long z = seed + 0x9E3779B97F4A7C15L * (((long) index << 8) + attempt + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // Writes puzzles as a PuzzleCorpus if dest ends in .corpus, else as boards back to
+    // back in the Data/*.txt format; BatchSolver reads either
+    public static void write(File dest, List<Puzzle> puzzles) throws IOException {
+        if (dest.getName().endsWith(PuzzleCorpus.EXTENSION)) {
+            List<int[][]> boards = new ArrayList<>();
+            for (Puzzle puzzle : puzzles) boards.add(puzzle.board);
+            PuzzleCorpus.write(dest, boards);
+            return;
+        }
+        StringBuilder line = new StringBuilder();
+        try (FileWriter writer = new FileWriter(dest)) {
+            for (Puzzle puzzle : puzzles) {
+                writer.write(puzzle.board.length + "\n");
+                for (int[] row : puzzle.board) {
+                    for (int j = 0; j < row.length; j++) {
+                        line.append(row[j]).append(j + 1 < row.length ? ' ' : '\n');
+                    }
+                    writer.write(line.toString());
+                    line.setLength(0);
+                }
+            }
+        }
+    }
+
+    // A generated puzzle, its one solution, and how hard it graded
+    public static class Puzzle {
+
+        private final int[][] board;
+        private final int[][] solution;
+        private final long nodes;
+        private final int givens;
+
+        private Puzzle(int[][] board, int[][] solution, long nodes, int givens) {
+            this.board = board;
+            this.solution = solution;
+            this.nodes = nodes;
+            this.givens = givens;
+        }
+
+        public int[][] getBoard() {
+            return board;
+        }
+
+        public int[][] getSolution() {
+            return solution;
+        }
+
+        // MRV search nodes, counted up to the generator's target
+        public long getNodes() {
+            return nodes;
+        }
+
+        public int getGivens() {
+            return givens;
+        }
+    }
+
+    // Stops a grading solve once it has used up the node budget
+    private static class NodeLimit extends SearchStats {
+
+        private final long limit;
+
+        private NodeLimit(long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void node(int depth) {
+            super.node(depth);
+            if (getNodes() >= limit) throw new Reached();
+        }
+
+        @SuppressWarnings("serial")
+        private static class Reached extends RuntimeException {
+        }
+    }
+
+    // Usage: PuzzleGenerator <size> <count> <target nodes> <output .txt or .corpus> [seed] [threads]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 4) {
+            System.out.println("Usage: PuzzleGenerator <size> <count> <target nodes> <output .txt or .corpus> [seed] [threads]");
+            return;
+        }
+        int boardSize = Integer.parseInt(args[0]);
+        int count = Integer.parseInt(args[1]);
+        long targetNodes = Long.parseLong(args[2]);
+        File dest = new File(args[3]);
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : DEFAULT_SEED;
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        List<Puzzle> puzzles = new PuzzleGenerator(boardSize, seed, targetNodes).generate(count, threads);
+        write(dest, puzzles);
+        long[] nodes = new long[puzzles.size()];
+        int reached = 0;
+        for (int k = 0; k < nodes.length; k++) {
+            nodes[k] = puzzles.get(k).getNodes();
+            if (nodes[k] >= targetNodes) reached++;
+        }
+        Arrays.sort(nodes);
+        System.out.printf("Wrote %d puzzles to %s in %.1f s; %d reached %d nodes, median %d%n",
+                nodes.length, dest, (System.nanoTime() - start) / 1e9, reached, targetNodes,
+                nodes.length == 0 ? 0 : nodes[nodes.length / 2]);
+    }
+}
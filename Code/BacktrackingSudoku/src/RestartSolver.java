@@ -0,0 +1,197 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * MRV backtracking with randomized ties and value order, restarted from the givens
+ * whenever a run has backtracked more than its share of the restart schedule. A bad
+ * early choice then only costs one run instead of the whole solve, which cuts off the
+ * heavy tail of runtimes a fixed ordering has. The schedule grows without bound, so a
+ * run eventually gets enough backtracks to settle the puzzle either way.
+ *
+ * Runs are reproducible: the same seed gives the same orderings and restarts. The search
+ * checks the wall-clock budget and the cancel flag every CHECK_INTERVAL nodes.
+ */
+public class RestartSolver implements BoardSolver {
+
+    public enum Schedule {
+        // restartUnit times 1, 1, 2, 1, 1, 2, 4, ... backtracks
+        LUBY,
+        // restartUnit backtracks, growing by GEOMETRIC_FACTOR every restart
+        GEOMETRIC
+    }
+
+    public static final long DEFAULT_SEED = 1;
+    public static final int DEFAULT_RESTART_UNIT = 100;
+    public static final double GEOMETRIC_FACTOR = 1.5;
+    public static final int CHECK_INTERVAL = 1024;
+
+    private static final int SOLVED = 1;
+    private static final int EXHAUSTED = 0;
+    private static final int RESTART = -1;
+    private static final int STOPPED = -2;
+
+    private final int boardSize;
+    private final long seed;
+    private final Schedule schedule;
+    private final int restartUnit;
+    private final long budgetNanos;
+    private final CandidateMasks masks;
+    // Empty cells as i * boardSize + j; cells[depth..emptyCount) are still unassigned
+    private final int[] cells;
+    // The shuffled values tried at each depth
+    private final int[][] order;
+    private int emptyCount;
+    private Random random;
+    private long backtracksLeft;
+    private long deadline;
+    private int untilCheck;
+    private AtomicBoolean cancel;
+    private SearchStats stats;
+
+    // Luby schedule with the default seed and no time limit
+    public RestartSolver(int boardSize) {
+        this(boardSize, DEFAULT_SEED, Schedule.LUBY, DEFAULT_RESTART_UNIT, 0);
+    }
+
+    // A budgetNanos of 0 means no time limit
+    public RestartSolver(int boardSize, long seed, Schedule schedule, int restartUnit, long budgetNanos) {
+        this.boardSize = boardSize;
+        this.seed = seed;
+        this.schedule = schedule;
+        this.restartUnit = restartUnit;
+        this.budgetNanos = budgetNanos;
+        this.masks = new CandidateMasks(boardSize);
+        this.cells = new int[boardSize * boardSize];
+        this.order = new int[boardSize * boardSize][boardSize];
+    }
+
+    @Override
+    public boolean solve(int[][] vals, SearchStats stats) {
+        return solve(vals, stats, null).isSolved();
+    }
+
+    // Stops with a timed out result once the budget runs out or cancel is set
+    public SolveResult solve(int[][] vals, SearchStats stats, AtomicBoolean cancel) {
+        this.stats = stats;
+        this.cancel = cancel;
+        if (!masks.load(vals)) return new SolveResult(false, null, stats);
+        emptyCount = 0;
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                if (vals[i][j] == 0) cells[emptyCount++] = i * boardSize + j;
+            }
+        }
+        random = new Random(seed);
+        deadline = budgetNanos > 0 ? System.nanoTime() + budgetNanos : Long.MAX_VALUE;
+        untilCheck = CHECK_INTERVAL;
+
+        double geometric = restartUnit;
+        for (int restarts = 0; ; restarts++) {
+            if (schedule == Schedule.LUBY) {
+                backtracksLeft = CdclSolver.luby(restarts) * restartUnit;
+            } else {
+                backtracksLeft = (long) geometric;
+                geometric *= GEOMETRIC_FACTOR;
+            }
+            // Every run that does not solve the board leaves it as it found it
+            switch (search(vals, 0)) {
+                case SOLVED:
+                    return new SolveResult(true, vals, stats, false, restarts);
+                case EXHAUSTED:
+                    return new SolveResult(false, null, stats, false, restarts);
+                case STOPPED:
+                    return new SolveResult(false, null, stats, true, restarts);
+                default:
+                    break;
+            }
+        }
+    }
+
+    private int search(int[][] vals, int depth) {
+        if (depth == emptyCount) return SOLVED;
+        if (--untilCheck == 0) {
+            untilCheck = CHECK_INTERVAL;
+            if (System.nanoTime() > deadline || (cancel != null && cancel.get())) return STOPPED;
+        }
+        if (stats != null) stats.node(depth);
+
+        // Find the most constrained cell, picking uniformly among ties
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        int ties = 0;
+        for (int k = depth; k < emptyCount; k++) {
+            int count = Long.bitCount(masks.candidates(cells[k] / boardSize, cells[k] % boardSize));
+            if (count == 0) return backtrack(depth);
+            if (count < bestCount) {
+                best = k;
+                bestCount = count;
+                ties = 1;
+            } else if (count == bestCount && random.nextInt(++ties) == 0) {
+                best = k;
+            }
+        }
+
+        int cell = cells[best];
+        cells[best] = cells[depth];
+        cells[depth] = cell;
+        int i = cell / boardSize;
+        int j = cell % boardSize;
+
+        int[] values = order[depth];
+        int n = 0;
+        long candidates = masks.candidates(i, j);
+        while (candidates != 0) {
+            long bit = candidates & -candidates;
+            candidates ^= bit;
+            values[n++] = Long.numberOfTrailingZeros(bit) + 1;
+        }
+        for (int k = n - 1; k > 0; k--) {
+            int swap = random.nextInt(k + 1);
+            int v = values[k];
+            values[k] = values[swap];
+            values[swap] = v;
+        }
+
+        for (int k = 0; k < n; k++) {
+            int v = values[k];
+            vals[i][j] = v;
+            masks.assign(i, j, v);
+            int status = search(vals, depth + 1);
+            if (status == SOLVED) return SOLVED;
+            masks.unassign(i, j, v);
+            if (status != EXHAUSTED) {
+                vals[i][j] = 0;
+                return status;
+            }
+        }
+        vals[i][j] = 0;
+        return backtrack(depth);
+    }
+
+    // Nothing left to try at this depth; restarts once the run's backtracks are used up
+    private int backtrack(int depth) {
+        if (stats != null) stats.backtrack(depth);
+        return --backtracksLeft < 0 ? RESTART : EXHAUSTED;
+    }
+
+    // Usage: RestartSolver <puzzle file> [seed] [LUBY|GEOMETRIC] [budget ms]
+    public static void main(String[] args) throws FileNotFoundException {
+        if (args.length == 0) {
+            System.out.println("Usage: RestartSolver <puzzle file> [seed] [LUBY|GEOMETRIC] [budget ms]");
+            return;
+        }
+        int[][] vals = Sudoku.readBoard(new File(args[0]));
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_SEED;
+        Schedule schedule = args.length > 2 ? Schedule.valueOf(args[2]) : Schedule.LUBY;
+        long budgetNanos = args.length > 3 ? Long.parseLong(args[3]) * 1000000L : 0;
+        RestartSolver solver = new RestartSolver(vals.length, seed, schedule, DEFAULT_RESTART_UNIT, budgetNanos);
+        SearchStats stats = new SearchStats();
+        SolveResult result = solver.solve(vals, stats, null);
+        stats.finish();
+        String verdict = result.isSolved() ? "solved" : result.isTimedOut() ? "timed out" : "no solution";
+        System.out.printf("%s: %s after %d restarts%n%s", args[0], verdict, result.getRestarts(), stats);
+        if (result.isSolved()) Sudoku.printBoard(result.getBoard());
+    }
+}
@@ -0,0 +1,115 @@
+import java.util.Arrays;
+
+/**
+ * Encodes the board as CNF and hands it to a CdclSolver.
+ *
+ * Every value the givens still allow in an empty cell becomes a variable, so the givens
+ * themselves never reach the SAT solver. Each empty cell takes exactly one of its values,
+ * and each row, column and partition takes every value it is missing exactly once, with
+ * "at most one" written out as pairwise clauses. Works on boards up to 64x64.
+ */
+public class SatSolver implements BoardSolver {
+
+    private final int boardSize;
+    private final int partitionSize;
+    private final CandidateMasks masks;
+    // Variable for each (cell, value - 1), 0 if the givens rule that value out
+    private final int[] variable;
+    // The cell and value each variable stands for, indexed from 1
+    private final int[] cellOf;
+    private final int[] valueOf;
+    private final int[] clause;
+
+    public SatSolver(int boardSize) {
+        this.boardSize = boardSize;
+        this.partitionSize = (int) Math.sqrt(boardSize);
+        this.masks = new CandidateMasks(boardSize);
+        int placements = boardSize * boardSize * boardSize;
+        this.variable = new int[placements];
+        this.cellOf = new int[placements + 1];
+        this.valueOf = new int[placements + 1];
+        this.clause = new int[boardSize];
+    }
+
+    @Override
+    public boolean solve(int[][] vals, SearchStats stats) {
+        if (!masks.load(vals)) return false;
+        Arrays.fill(variable, 0);
+        int variables = 0;
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                if (vals[i][j] != 0) continue;
+                long candidates = masks.candidates(i, j);
+                if (candidates == 0) return false;
+                while (candidates != 0) {
+                    long bit = candidates & -candidates;
+                    candidates ^= bit;
+                    int v = Long.numberOfTrailingZeros(bit);
+                    int cell = i * boardSize + j;
+                    variables++;
+                    variable[cell * boardSize + v] = variables;
+                    cellOf[variables] = cell;
+                    valueOf[variables] = v + 1;
+                }
+            }
+        }
+        if (variables == 0) return true;
+
+        CdclSolver sat = new CdclSolver(variables);
+        for (int cell = 0; cell < boardSize * boardSize; cell++) {
+            int n = 0;
+            for (int v = 0; v < boardSize; v++) {
+                int x = variable[cell * boardSize + v];
+                if (x != 0) clause[n++] = x;
+            }
+            if (n > 0) exactlyOne(sat, n);
+        }
+        // Rows, then columns, then partitions
+        for (int unit = 0; unit < 3 * boardSize; unit++) {
+            for (int v = 0; v < boardSize; v++) {
+                int n = 0;
+                boolean placed = false;
+                for (int k = 0; k < boardSize; k++) {
+                    int cell = cellOfUnit(unit, k);
+                    if (vals[cell / boardSize][cell % boardSize] == v + 1) placed = true;
+                    int x = variable[cell * boardSize + v];
+                    if (x != 0) clause[n++] = x;
+                }
+                if (placed) continue;
+                // The value is missing from the unit and fits nowhere in it
+                if (n == 0) return false;
+                exactlyOne(sat, n);
+            }
+        }
+        if (!sat.solve(stats)) return false;
+        for (int x = 1; x <= variables; x++) {
+            if (!sat.value(x)) continue;
+            vals[cellOf[x] / boardSize][cellOf[x] % boardSize] = valueOf[x];
+        }
+        return true;
+    }
+
+    // Adds clauses saying exactly one of the first n variables in clause is true
+    private void exactlyOne(CdclSolver sat, int n) {
+        sat.addClause(Arrays.copyOf(clause, n));
+        for (int a = 0; a < n; a++) {
+            for (int b = a + 1; b < n; b++) {
+                sat.addClause(-clause[a], -clause[b]);
+            }
+        }
+    }
+
+    private int cellOfUnit(int unit, int k) {
+        int index = unit % boardSize;
+        switch (unit / boardSize) {
+            case 0:
+                return index * boardSize + k;
+            case 1:
+                return k * boardSize + index;
+            default:
+                int i = (index / partitionSize) * partitionSize + k / partitionSize;
+                int j = (index % partitionSize) * partitionSize + k % partitionSize;
+                return i * boardSize + j;
+        }
+    }
+}
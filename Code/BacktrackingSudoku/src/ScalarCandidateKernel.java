@@ -0,0 +1,36 @@
+/**
+ * The plain loop behind CandidateKernel, one cell at a time. It is the fallback when
+ * the Vector API kernel cannot be loaded and the reference the vector one must match.
+ */
+public class ScalarCandidateKernel implements CandidateKernel {
+
+    @Override
+    public int fewest(ScanBoard board) {
+        int boardSize = board.boardSize;
+        long full = board.full;
+        long[] cols = board.cols;
+        long[] bands = board.bands;
+        long[] closed = board.closed;
+        long[] colOpen = board.colOpen;
+        long[] bandOpen = board.bandOpen;
+        int best = -1;
+        long bestScore = Long.MAX_VALUE;
+        for (int i = 0; i < boardSize; i++) {
+            long row = board.rows[i];
+            long rowOpen = board.rowOpen[i];
+            int band = board.band(i);
+            int base = i * boardSize;
+            for (int j = 0; j < boardSize; j++) {
+                if (closed[base + j] != 0) continue;
+                long count = Long.bitCount(full & ~(row | cols[j] | bands[band + j]));
+                long score = count * DEGREE_SCALE - (rowOpen + colOpen[j] + bandOpen[band + j]);
+                if (score < bestScore) {
+                    if (score <= 0) return base + j;
+                    best = base + j;
+                    bestScore = score;
+                }
+            }
+        }
+        return best;
+    }
+}
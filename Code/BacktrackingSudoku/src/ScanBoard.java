@@ -0,0 +1,122 @@
+import java.util.Arrays;
+
+/**
+ * A board laid out flat and row by row for CandidateKernel to stream through. Everything
+ * about a cell (i, j) sits at index j of an array for row i or for i's band of boxes,
+ * so a kernel can load the column and box data of several neighbouring cells side by
+ * side. Value v is bit (v - 1), which limits it to boards up to 64x64.
+ *
+ *     rows[i], cols[j]           values used in row i and column j
+ *     bands[band(i) + j]         values used in the box holding (i, j)
+ *     closed[i * boardSize + j]  -1 for a filled cell, 0 for an open one
+ *     rowOpen, colOpen, bandOpen the same layout, counting the open cells of each unit
+ *
+ * The arrays are public so a kernel in another module can read them; only the owning
+ * search changes them, through load, close, open, assign and unassign.
+ */
+public class ScanBoard {
+
+    public final int boardSize;
+    public final int partitionSize;
+    public final long full;
+    public final long[] rows;
+    public final long[] cols;
+    public final long[] bands;
+    public final long[] closed;
+    public final long[] rowOpen;
+    public final long[] colOpen;
+    public final long[] bandOpen;
+
+    public ScanBoard(int boardSize) {
+        if (boardSize < 1 || boardSize > CandidateMasks.MAX_SIZE) {
+            throw new IllegalArgumentException("Candidate masks only support boards up to " + CandidateMasks.MAX_SIZE + "x" + CandidateMasks.MAX_SIZE);
+        }
+        this.boardSize = boardSize;
+        this.partitionSize = (int) Math.sqrt(boardSize);
+        this.full = boardSize == 64 ? -1L : (1L << boardSize) - 1;
+        this.rows = new long[boardSize];
+        this.cols = new long[boardSize];
+        this.bands = new long[partitionSize * boardSize];
+        this.closed = new long[boardSize * boardSize];
+        this.rowOpen = new long[boardSize];
+        this.colOpen = new long[boardSize];
+        this.bandOpen = new long[partitionSize * boardSize];
+    }
+
+    // Fills everything in from the givens; false if two of them clash
+    public boolean load(int[][] vals) {
+        Arrays.fill(rows, 0);
+        Arrays.fill(cols, 0);
+        Arrays.fill(bands, 0);
+        Arrays.fill(rowOpen, 0);
+        Arrays.fill(colOpen, 0);
+        Arrays.fill(bandOpen, 0);
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                closed[i * boardSize + j] = -1;
+                int v = vals[i][j];
+                if (v == 0) {
+                    open(i, j);
+                    continue;
+                }
+                if (v < 0 || v > boardSize) return false;
+                long bit = 1L << (v - 1);
+                if (((rows[i] | cols[j] | bands[band(i) + j]) & bit) != 0) return false;
+                assign(i, j, bit);
+            }
+        }
+        return true;
+    }
+
+    public int band(int i) {
+        return (i / partitionSize) * boardSize;
+    }
+
+    public long candidates(int i, int j) {
+        return full & ~(rows[i] | cols[j] | bands[band(i) + j]);
+    }
+
+    // Takes (i, j) out of the open cells, before trying values in it
+    public void close(int i, int j) {
+        closed[i * boardSize + j] = -1;
+        rowOpen[i]--;
+        colOpen[j]--;
+        int start = boxStart(i, j);
+        for (int k = 0; k < partitionSize; k++) {
+            bandOpen[start + k]--;
+        }
+    }
+
+    public void open(int i, int j) {
+        closed[i * boardSize + j] = 0;
+        rowOpen[i]++;
+        colOpen[j]++;
+        int start = boxStart(i, j);
+        for (int k = 0; k < partitionSize; k++) {
+            bandOpen[start + k]++;
+        }
+    }
+
+    public void assign(int i, int j, long bit) {
+        rows[i] |= bit;
+        cols[j] |= bit;
+        int start = boxStart(i, j);
+        for (int k = 0; k < partitionSize; k++) {
+            bands[start + k] |= bit;
+        }
+    }
+
+    public void unassign(int i, int j, long bit) {
+        rows[i] &= ~bit;
+        cols[j] &= ~bit;
+        int start = boxStart(i, j);
+        for (int k = 0; k < partitionSize; k++) {
+            bands[start + k] &= ~bit;
+        }
+    }
+
+    // The box of (i, j) covers partitionSize consecutive columns of its band
+    private int boxStart(int i, int j) {
+        return band(i) + (j / partitionSize) * partitionSize;
+    }
+}
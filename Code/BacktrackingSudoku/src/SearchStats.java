@@ -0,0 +1,192 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * What one solve did: nodes visited, dead ends backed out of, how deep the search went,
+ * how many cells propagation filled in, and where the wall time went, grouped into bands
+ * of search depth. Engines only record into it when they are handed one, so with
+ * statistics off a solve pays nothing but a null check per node.
+ */
+public class SearchStats {
+
+    public static final int DEFAULT_BAND_WIDTH = 8;
+
+    private final int bandWidth;
+    private long nodes;
+    private long backtracks;
+    private int maxDepth;
+    private long propagationHits;
+    private long[] bandNanos = new long[4];
+    private long started;
+    private long last;
+    private int lastDepth;
+    private long totalNanos;
+
+    public SearchStats() {
+        this(DEFAULT_BAND_WIDTH);
+    }
+
+    public SearchStats(int bandWidth) {
+        this.bandWidth = bandWidth;
+        start();
+    }
+
+    public void start() {
+        started = System.nanoTime();
+        last = started;
+        lastDepth = 0;
+    }
+
+    // A node at the given depth of the search tree is expanded
+    public void node(int depth) {
+        nodes++;
+        if (depth > maxDepth) maxDepth = depth;
+        tick(depth);
+    }
+
+    // The node at the given depth ran out of options and the search backs out of it
+    public void backtrack(int depth) {
+        backtracks++;
+        tick(depth);
+    }
+
+    public void propagated(int placements) {
+        propagationHits += placements;
+    }
+
+    public void finish() {
+        tick(0);
+        totalNanos = last - started;
+    }
+
+    // Charges the time since the last event to the band the search was in
+    private void tick(int depth) {
+        long now = System.nanoTime();
+        int band = lastDepth / bandWidth;
+        if (band >= bandNanos.length) bandNanos = Arrays.copyOf(bandNanos, Math.max(band + 1, bandNanos.length * 2));
+        bandNanos[band] += now - last;
+        last = now;
+        lastDepth = depth;
+    }
+
+    // Folds in the counts from a search that ran on another thread
+    public synchronized void add(SearchStats other) {
+        nodes += other.nodes;
+        backtracks += other.backtracks;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+        propagationHits += other.propagationHits;
+        if (other.bandNanos.length > bandNanos.length) bandNanos = Arrays.copyOf(bandNanos, other.bandNanos.length);
+        for (int band = 0; band < other.bandNanos.length; band++) {
+            bandNanos[band] += other.bandNanos[band];
+        }
+    }
+
+    // Folds in the counts a search in another process reported; it has no timings to add
+    public synchronized void add(long nodes, long backtracks, int maxDepth) {
+        this.nodes += nodes;
+        this.backtracks += backtracks;
+        this.maxDepth = Math.max(this.maxDepth, maxDepth);
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getBacktracks() {
+        return backtracks;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getPropagationHits() {
+        return propagationHits;
+    }
+
+    public int getBandWidth() {
+        return bandWidth;
+    }
+
+    // Nanoseconds spent at depths [band * bandWidth, (band + 1) * bandWidth)
+    public long getBandNanos(int band) {
+        return band < bandNanos.length ? bandNanos[band] : 0;
+    }
+
+    public int getBands() {
+        int bands = bandNanos.length;
+        while (bands > 0 && bandNanos[bands - 1] == 0) bands--;
+        return bands;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public static String csvHeader() {
+        return "nodes,backtracks,maxDepth,propagationHits,totalMs,bandMs";
+    }
+
+    // One line for a log, the per-band times separated by spaces in the last column
+    public String toCsv() {
+        StringBuilder bands = new StringBuilder();
+        for (int band = 0; band < getBands(); band++) {
+            if (band > 0) bands.append(' ');
+            bands.append(String.format("%.3f", bandNanos[band] / 1e6));
+        }
+        return String.format("%d,%d,%d,%d,%.3f,%s", nodes, backtracks, maxDepth, propagationHits, totalNanos / 1e6, bands);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("Nodes: %d, backtracks: %d, max depth: %d, propagation hits: %d, time: %.3f ms%n",
+                nodes, backtracks, maxDepth, propagationHits, totalNanos / 1e6));
+        for (int band = 0; band < getBands(); band++) {
+            text.append(String.format("  depth %4d-%-4d %10.3f ms%n", band * bandWidth, (band + 1) * bandWidth - 1, bandNanos[band] / 1e6));
+        }
+        return text.toString();
+    }
+
+    // Usage: SearchStats <directory or file> [engine] [log file]
+    // Solves every puzzle and appends one timestamped line per puzzle to the log,
+    // so runs over the same corpus can be compared over time
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: SearchStats <directory or file> [engine] [log file]");
+            return;
+        }
+        File input = new File(args[0]);
+        Engine engine = args.length > 1 ? Engine.valueOf(args[1]) : Engine.MRV;
+        File log = new File(args.length > 2 ? args[2] : "Output/searchStats.csv");
+        File[] files = input.isDirectory() ? input.listFiles((dir, name) -> name.endsWith(".txt")) : new File[]{input};
+        if (files == null) files = new File[0];
+        Arrays.sort(files);
+
+        boolean header = !log.exists();
+        String timestamp = LocalDateTime.now().toString();
+        SudokuSolver solver = new SudokuSolver(engine);
+        try (PrintWriter out = new PrintWriter(new FileWriter(log, true))) {
+            if (header) out.println("timestamp,puzzle,engine,solved," + csvHeader());
+            for (File file : files) {
+                int[][] vals;
+                try {
+                    vals = Sudoku.readBoard(file);
+                } catch (FileNotFoundException | RuntimeException e) {
+                    System.out.println("Skipping " + file + ": " + e.getMessage());
+                    continue;
+                }
+                SearchStats stats = new SearchStats();
+                boolean solved = solver.solve(vals, stats);
+                String line = timestamp + "," + file.getName() + "," + engine + "," + solved + "," + stats.toCsv();
+                out.println(line);
+                System.out.println(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,350 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Scanner;
+
+/**
+ * Remembers solutions by the canonical form of their puzzle, so a resubmitted puzzle,
+ * or a variant of one with its values relabelled, its rows and columns swapped within
+ * bands and stacks, its bands or stacks reordered, or the whole board transposed, is
+ * answered without searching. The stored solution is mapped back through the same
+ * symmetry onto the board that was asked about.
+ *
+ * Canonical forms come from colouring rows, columns and values by invariants that no
+ * symmetry changes, ordering bands, stacks, rows and columns by those colours, relabelling
+ * values in order of first appearance, and taking the smaller of the board and its
+ * transpose. Lines whose colours still tie keep their original order, so two variants
+ * that only differ in such lines can miss each other; a hit is always a genuine solution
+ * though, because the key is the full canonical board.
+ *
+ * The entries live in a bounded LRU map, and when a directory is given, also in one file
+ * per entry there, which survives restarts. All methods are safe to call from any thread.
+ */
+public class SolutionCache {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final int capacity;
+    private final File directory;
+    private final Map<String, int[][]> entries;
+    private long hits;
+    private long misses;
+
+    // In memory only
+    public SolutionCache(int capacity) {
+        this(capacity, null);
+    }
+
+    // With directory null the cache is in memory only
+    public SolutionCache(int capacity, File directory) {
+        this.capacity = capacity;
+        this.directory = directory;
+        this.entries = new LinkedHashMap<String, int[][]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, int[][]> eldest) {
+                return size() > SolutionCache.this.capacity;
+            }
+        };
+        if (directory != null) directory.mkdirs();
+    }
+
+    // The solution of the puzzle, oriented like vals, or null if it is not cached
+    public int[][] lookup(int[][] vals) {
+        Form form = new Form(vals);
+        int[][] solution;
+        synchronized (this) {
+            solution = entries.get(form.key);
+        }
+        if (solution == null && directory != null) {
+            solution = readEntry(form);
+            if (solution != null) {
+                synchronized (this) {
+                    entries.put(form.key, solution);
+                }
+            }
+        }
+        synchronized (this) {
+            if (solution == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        return form.fromCanonical(solution);
+    }
+
+    // Remembers the solution of the puzzle whose givens are in vals
+    public void store(int[][] vals, int[][] solution) {
+        Form form = new Form(vals);
+        int[][] canonical = form.toCanonical(solution);
+        synchronized (this) {
+            entries.put(form.key, canonical);
+        }
+        if (directory != null) writeEntry(form, canonical);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    // Each file holds the board size, the canonical puzzle and then its solution
+    private int[][] readEntry(Form form) {
+        File file = fileFor(form);
+        if (!file.exists()) return null;
+        try (Scanner scanner = new Scanner(file)) {
+            int[][] puzzle = Sudoku.readBoard(scanner);
+            // Two puzzles can share a file name only if their digests collide
+            if (!Arrays.deepEquals(puzzle, form.board)) return null;
+            int size = puzzle.length;
+            int[][] solution = new int[size][size];
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    solution[i][j] = scanner.nextInt();
+                }
+            }
+            return solution;
+        } catch (FileNotFoundException | RuntimeException e) {
+            System.out.println("Ignoring unreadable cache entry " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeEntry(Form form, int[][] canonical) {
+        File file = fileFor(form);
+        int size = canonical.length;
+        StringBuilder text = new StringBuilder();
+        text.append(size).append('\n');
+        for (int[][] board : new int[][][]{form.board, canonical}) {
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    if (j > 0) text.append(' ');
+                    text.append(board[i][j]);
+                }
+                text.append('\n');
+            }
+        }
+        try {
+            // Write to the side and move it into place, so readers never see half a file
+            File temp = File.createTempFile(file.getName(), ".tmp", directory);
+            try (PrintWriter out = new PrintWriter(temp, "UTF-8")) {
+                out.print(text);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("Error writing cache entry " + file);
+        }
+    }
+
+    private File fileFor(Form form) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(form.key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder().append(form.board.length).append('-');
+            for (int k = 0; k < 16; k++) {
+                name.append(String.format("%02x", digest[k]));
+            }
+            return new File(directory, name.append(".txt").toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // A puzzle in canonical form, and the symmetry that takes the original there
+    static class Form {
+
+        private static final int REFINE_ROUNDS = 4;
+
+        private final int size;
+        private boolean transposed;
+        // Canonical row r is original row rows[r] (after transposing), likewise for columns
+        private int[] rows;
+        private int[] cols;
+        // Original value v becomes relabel[v]; 0 stays 0
+        private int[] relabel;
+        private int[][] board;
+        final String key;
+
+        Form(int[][] vals) {
+            size = vals.length;
+            for (int t = 0; t < 2; t++) {
+                Form candidate = new Form(vals, t == 1);
+                if (board == null || compare(candidate.board, board) < 0) {
+                    transposed = candidate.transposed;
+                    rows = candidate.rows;
+                    cols = candidate.cols;
+                    relabel = candidate.relabel;
+                    board = candidate.board;
+                }
+            }
+            StringBuilder text = new StringBuilder().append(size);
+            for (int[] row : board) {
+                for (int v : row) text.append(',').append(v);
+            }
+            key = text.toString();
+        }
+
+        private Form(int[][] vals, boolean transposed) {
+            this.size = vals.length;
+            this.transposed = transposed;
+            this.key = null;
+            int partitionSize = (int) Math.sqrt(size);
+            int[][] oriented = new int[size][size];
+            // Colour rows, columns and values by what they hold, then refine each colour
+            // a few times by the colours they meet, like Weisfeiler-Lehman refinement.
+            // Sums of mixed hashes keep the result independent of the original order.
+            long[] rowScore = new long[size];
+            long[] colScore = new long[size];
+            long[] valueScore = new long[size + 1];
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    int v = transposed ? vals[j][i] : vals[i][j];
+                    oriented[i][j] = v;
+                    if (v == 0) continue;
+                    rowScore[i]++;
+                    colScore[j]++;
+                    valueScore[v]++;
+                }
+            }
+            for (int round = 0; round < REFINE_ROUNDS; round++) {
+                long[] rowNext = new long[size];
+                long[] colNext = new long[size];
+                long[] valueNext = new long[size + 1];
+                for (int i = 0; i < size; i++) {
+                    for (int j = 0; j < size; j++) {
+                        int v = oriented[i][j];
+                        if (v == 0) continue;
+                        rowNext[i] += mix(colScore[j] * 31 + valueScore[v]);
+                        colNext[j] += mix(rowScore[i] * 31 + valueScore[v]);
+                        valueNext[v] += mix(rowScore[i] * 31 + colScore[j]);
+                    }
+                }
+                long[] bandScore = new long[partitionSize];
+                long[] stackScore = new long[partitionSize];
+                for (int x = 0; x < size; x++) {
+                    bandScore[x / partitionSize] += mix(rowScore[x]);
+                    stackScore[x / partitionSize] += mix(colScore[x]);
+                }
+                for (int x = 0; x < size; x++) {
+                    rowNext[x] = mix(mix(rowScore[x] + rowNext[x]) + bandScore[x / partitionSize]);
+                    colNext[x] = mix(mix(colScore[x] + colNext[x]) + stackScore[x / partitionSize]);
+                }
+                for (int v = 1; v <= size; v++) {
+                    valueNext[v] = mix(valueScore[v] + valueNext[v]);
+                }
+                rowScore = rowNext;
+                colScore = colNext;
+                valueScore = valueNext;
+            }
+            rows = order(rowScore, partitionSize);
+            cols = order(colScore, partitionSize);
+
+            // Values are numbered in the order they first appear; missing ones come last
+            relabel = new int[size + 1];
+            board = new int[size][size];
+            int next = 1;
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    int v = oriented[rows[r]][cols[c]];
+                    if (v != 0 && relabel[v] == 0) relabel[v] = next++;
+                    board[r][c] = v == 0 ? 0 : relabel[v];
+                }
+            }
+            for (int v = 1; v <= size; v++) {
+                if (relabel[v] == 0) relabel[v] = next++;
+            }
+        }
+
+        // Maps a solution of the original puzzle onto the canonical one
+        int[][] toCanonical(int[][] solution) {
+            int[][] canonical = new int[size][size];
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    int i = rows[r];
+                    int j = cols[c];
+                    canonical[r][c] = relabel[transposed ? solution[j][i] : solution[i][j]];
+                }
+            }
+            return canonical;
+        }
+
+        // Maps a solution of the canonical puzzle back onto the original
+        int[][] fromCanonical(int[][] canonical) {
+            int[] original = new int[size + 1];
+            for (int v = 1; v <= size; v++) {
+                original[relabel[v]] = v;
+            }
+            int[][] solution = new int[size][size];
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    int i = rows[r];
+                    int j = cols[c];
+                    if (transposed) {
+                        solution[j][i] = original[canonical[r][c]];
+                    } else {
+                        solution[i][j] = original[canonical[r][c]];
+                    }
+                }
+            }
+            return solution;
+        }
+
+        // Bands by their total score, then the lines inside each band by theirs, highest first.
+        // The sorts are stable, so ties keep their original order.
+        private static int[] order(long[] score, int partitionSize) {
+            Integer[] bands = new Integer[partitionSize];
+            long[] bandScore = new long[partitionSize];
+            for (int b = 0; b < partitionSize; b++) {
+                bands[b] = b;
+                for (int k = 0; k < partitionSize; k++) {
+                    bandScore[b] += score[b * partitionSize + k];
+                }
+            }
+            Arrays.sort(bands, (a, b) -> Long.compare(bandScore[b], bandScore[a]));
+            int[] order = new int[score.length];
+            Integer[] lines = new Integer[partitionSize];
+            int n = 0;
+            for (int band : bands) {
+                for (int k = 0; k < partitionSize; k++) {
+                    lines[k] = band * partitionSize + k;
+                }
+                Arrays.sort(lines, (a, b) -> Long.compare(score[b], score[a]));
+                for (Integer line : lines) {
+                    order[n++] = line;
+                }
+            }
+            return order;
+        }
+
+        // The SplitMix64 finalizer
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+
+        private static int compare(int[][] a, int[][] b) {
+            for (int i = 0; i < a.length; i++) {
+                for (int j = 0; j < a.length; j++) {
+                    if (a[i][j] != b[i][j]) return Integer.compare(a[i][j], b[i][j]);
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Counts the solutions of a board up to a limit, e.g. a limit of 2 to check that a
+ * puzzle has exactly one. The search branches on the cell with the fewest candidates
+ * and runs the LogicalSolver rules after every guess, so unsolvable boards and boards
+ * with several solutions are usually told apart after very few nodes.
+ *
+ * With a pool the first few branching levels are split into fork/join tasks that all
+ * add to one shared count and stop as soon as it reaches the limit.
+ */
+public class SolutionCounter {
+
+    private final int boardSize;
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+    private final ThreadLocal<Search> searches;
+
+    // Counts on the calling thread only
+    public SolutionCounter(int boardSize) {
+        this(boardSize, null, 0);
+    }
+
+    public SolutionCounter(int boardSize, ForkJoinPool pool, int splitDepth) {
+        this.boardSize = boardSize;
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+        this.searches = ThreadLocal.withInitial(() -> new Search(boardSize));
+    }
+
+    // Returns the number of solutions, stopping at limit, and leaves the first one found in vals
+    public long count(int[][] vals, long limit) {
+        AtomicLong counter = new AtomicLong();
+        AtomicReference<int[][]> first = new AtomicReference<>();
+        if (pool == null) {
+            searches.get().count(vals, counter, limit, first);
+        } else {
+            pool.invoke(new CountTask(copy(vals), 0, counter, limit, first));
+        }
+        int[][] solution = first.get();
+        if (solution != null) {
+            for (int i = 0; i < boardSize; i++) {
+                System.arraycopy(solution[i], 0, vals[i], 0, boardSize);
+            }
+        }
+        return Math.min(counter.get(), limit);
+    }
+
+    public boolean isUnique(int[][] vals) {
+        return count(vals, 2) == 1;
+    }
+
+    private int[][] copy(int[][] vals) {
+        int[][] copy = new int[boardSize][];
+        for (int i = 0; i < boardSize; i++) {
+            copy[i] = vals[i].clone();
+        }
+        return copy;
+    }
+
+    // One thread's solver and the saved states for each level of its search
+    private static class Search {
+
+        private final int boardSize;
+        private final LogicalSolver logical;
+        private final ArrayList<int[]> boards = new ArrayList<>();
+        private final ArrayList<long[]> candidates = new ArrayList<>();
+        private AtomicLong counter;
+        private long limit;
+        private AtomicReference<int[][]> first;
+
+        private Search(int boardSize) {
+            this.boardSize = boardSize;
+            this.logical = new LogicalSolver(boardSize);
+        }
+
+        private void count(int[][] vals, AtomicLong counter, long limit, AtomicReference<int[][]> first) {
+            this.counter = counter;
+            this.limit = limit;
+            this.first = first;
+            if (!logical.load(vals) || !logical.propagate()) return;
+            search(0);
+        }
+
+        private void search(int depth) {
+            if (counter.get() >= limit) return;
+            int cell = logical.chooseCell();
+            if (cell < 0) {
+                found();
+                return;
+            }
+            if (depth == boards.size()) {
+                boards.add(new int[logical.cells()]);
+                candidates.add(new long[logical.cells()]);
+            }
+            int[] savedBoard = boards.get(depth);
+            long[] savedCandidates = candidates.get(depth);
+            logical.save(savedBoard, savedCandidates);
+
+            long options = logical.candidatesOf(cell);
+            while (options != 0 && counter.get() < limit) {
+                long bit = options & -options;
+                options ^= bit;
+                if (logical.assign(cell, Long.numberOfTrailingZeros(bit) + 1)) search(depth + 1);
+                logical.restore(savedBoard, savedCandidates);
+            }
+        }
+
+        private void found() {
+            if (counter.incrementAndGet() == 1) {
+                int[][] solution = new int[boardSize][boardSize];
+                logical.store(solution);
+                first.compareAndSet(null, solution);
+            }
+        }
+    }
+
+    // Forked and joined within one count, so nothing ever serializes it
+    @SuppressWarnings("serial")
+    private class CountTask extends RecursiveAction {
+
+        private final int[][] vals;
+        private final int depth;
+        private final AtomicLong counter;
+        private final long limit;
+        private final AtomicReference<int[][]> first;
+
+        CountTask(int[][] vals, int depth, AtomicLong counter, long limit, AtomicReference<int[][]> first) {
+            this.vals = vals;
+            this.depth = depth;
+            this.counter = counter;
+            this.limit = limit;
+            this.first = first;
+        }
+
+        @Override
+        protected void compute() {
+            if (counter.get() >= limit) return;
+            Search search = searches.get();
+            if (depth >= splitDepth) {
+                search.count(vals, counter, limit, first);
+                return;
+            }
+            LogicalSolver logical = search.logical;
+            if (!logical.load(vals) || !logical.propagate()) return;
+            int cell = logical.chooseCell();
+            if (cell < 0) {
+                search.counter = counter;
+                search.first = first;
+                search.found();
+                return;
+            }
+            int[][] propagated = new int[boardSize][boardSize];
+            logical.store(propagated);
+
+            ArrayList<CountTask> tasks = new ArrayList<>();
+            long options = logical.candidatesOf(cell);
+            while (options != 0) {
+                long bit = options & -options;
+                options ^= bit;
+                int[][] child = copy(propagated);
+                child[cell / boardSize][cell % boardSize] = Long.numberOfTrailingZeros(bit) + 1;
+                tasks.add(new CountTask(child, depth + 1, counter, limit, first));
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    // Usage: SolutionCounter <puzzle file> [limit]
+    public static void main(String[] args) throws FileNotFoundException {
+        if (args.length == 0) {
+            System.out.println("Usage: SolutionCounter <puzzle file> [limit]");
+            return;
+        }
+        int[][] vals = Sudoku.readBoard(new File(args[0]));
+        long limit = args.length > 1 ? Long.parseLong(args[1]) : 2;
+        SolutionCounter counter = new SolutionCounter(vals.length, ForkJoinPool.commonPool(), ParallelSolver.DEFAULT_SPLIT_DEPTH);
+        long start = System.nanoTime();
+        long count = counter.count(vals, limit);
+        double ms = (System.nanoTime() - start) / 1e6;
+        String verdict = count == 0 ? "no solution" : count == 1 ? "unique solution" : count >= limit ? "at least " + limit + " solutions" : count + " solutions";
+        System.out.printf("%s: %s (%.1f ms)%n", args[0], verdict, ms);
+    }
+}
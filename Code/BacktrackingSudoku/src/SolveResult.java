@@ -0,0 +1,48 @@
+/**
+ * The outcome of solving one puzzle: whether it was solved, the solved board,
+ * the search statistics if they were collected, and for engines that restart or
+ * run under a time budget, whether they gave up and how many restarts they made.
+ */
+public class SolveResult {
+
+    private final boolean solved;
+    private final int[][] board;
+    private final SearchStats stats;
+    private final boolean timedOut;
+    private final int restarts;
+
+    public SolveResult(boolean solved, int[][] board, SearchStats stats) {
+        this(solved, board, stats, false, 0);
+    }
+
+    public SolveResult(boolean solved, int[][] board, SearchStats stats, boolean timedOut, int restarts) {
+        this.solved = solved;
+        this.board = board;
+        this.stats = stats;
+        this.timedOut = timedOut;
+        this.restarts = restarts;
+    }
+
+    public boolean isSolved() {
+        return solved;
+    }
+
+    // The solved board, or null if there was no solution
+    public int[][] getBoard() {
+        return board;
+    }
+
+    // Null unless statistics were collected
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    // True if the search ran out of time or was cancelled before it reached an answer
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public int getRestarts() {
+        return restarts;
+    }
+}
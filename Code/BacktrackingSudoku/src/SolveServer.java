@@ -0,0 +1,183 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a solver running as a local HTTP service so callers do not pay for JVM startup
+ * on every puzzle. POST a board in the Data/*.txt format to /solve, optionally with
+ * ?engine=NAME, and the reply is
+ *
+ *     solved true
+ *     wait-nanos 1200
+ *     solve-nanos 350000
+ *     9
+ *     ...the solved board, one row per line...
+ *
+ * Each request is handled on its own virtual thread when the JVM has them (JDK 21 and
+ * later) and on a cached thread pool otherwise. Handlers are cheap, but solves are not,
+ * so a semaphore with one permit per core bounds how many solves run at once; the rest
+ * wait their turn, and wait-nanos reports how long they waited.
+ *
+ * The server only listens on the loopback address.
+ */
+public class SolveServer {
+
+    public static final int DEFAULT_PORT = 8765;
+
+    private final HttpServer server;
+    private final ExecutorService requests;
+    private final Semaphore solves;
+    private final Engine defaultEngine;
+
+    // Port 0 picks any free port; getPort says which
+    public SolveServer(int port, Engine defaultEngine, int maxConcurrentSolves) throws IOException {
+        this.defaultEngine = defaultEngine;
+        this.solves = new Semaphore(maxConcurrentSolves, true);
+        this.requests = newRequestExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(requests);
+        server.createContext("/solve", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // Stops accepting requests, giving running ones up to delaySeconds to finish
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        requests.shutdown();
+        try {
+            requests.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Virtual threads are looked up by name so the rest of the code still builds for older JDKs
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                reply(exchange, 405, "Only POST is supported\n");
+                return;
+            }
+            Engine engine;
+            int[][] vals;
+            try {
+                engine = engineOf(exchange.getRequestURI());
+                vals = Sudoku.readBoard(new Scanner(new String(readAll(exchange.getRequestBody()), StandardCharsets.UTF_8)));
+                int partitionSize = (int) Math.sqrt(vals.length);
+                if (partitionSize * partitionSize != vals.length) {
+                    throw new IllegalArgumentException("Boards must be n x n for a square n: " + vals.length);
+                }
+            } catch (RuntimeException e) {
+                // An unknown engine, a missing size, a short board or a size with no boxes
+                reply(exchange, 400, "Bad request: " + e + "\n");
+                return;
+            }
+
+            long queued = System.nanoTime();
+            try {
+                solves.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                reply(exchange, 503, "Interrupted while waiting to solve\n");
+                return;
+            }
+            long started = System.nanoTime();
+            boolean solved;
+            try {
+                solved = new SudokuSolver(engine, true).solve(vals);
+            } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                // The engine is not on the class path or does not take boards this big
+                reply(exchange, 400, "Bad request: " + e + "\n");
+                return;
+            } catch (RuntimeException e) {
+                reply(exchange, 500, "Solve failed: " + e + "\n");
+                return;
+            } finally {
+                solves.release();
+            }
+            long finished = System.nanoTime();
+
+            StringBuilder body = new StringBuilder();
+            body.append("solved ").append(solved).append('\n');
+            body.append("wait-nanos ").append(started - queued).append('\n');
+            body.append("solve-nanos ").append(finished - started).append('\n');
+            if (solved) {
+                body.append(vals.length).append('\n');
+                for (int[] row : vals) {
+                    for (int j = 0; j < row.length; j++) {
+                        body.append(row[j]).append(j + 1 < row.length ? ' ' : '\n');
+                    }
+                }
+            }
+            reply(exchange, 200, body.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Engine engineOf(URI uri) {
+        String query = uri.getRawQuery();
+        if (query == null) return defaultEngine;
+        for (String pair : query.split("&")) {
+            if (pair.startsWith("engine=")) return Engine.valueOf(pair.substring("engine=".length()));
+        }
+        return defaultEngine;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            bytes.write(buffer, 0, n);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void reply(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // Usage: SolveServer [port] [engine] [max concurrent solves]
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Engine engine = args.length > 1 ? Engine.valueOf(args[1]) : Engine.MRV;
+        int permits = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        SolveServer server = new SolveServer(port, engine, permits);
+        server.start();
+        System.out.println("Solving on http://localhost:" + server.getPort() + "/solve with " + engine);
+    }
+}
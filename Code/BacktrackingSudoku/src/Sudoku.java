@@ -9,107 +9,92 @@ import java.util.Stack;
 
 public class Sudoku {
 
-    private static int boardSize = 0;
-    private static int partitionSize = 0;
-
-    public static ArrayList solveFromFile(String filename){
-        File inputFile = new File(filename);
-        Scanner input = null;
-        int[][] vals = null;
-
-        int temp = 0;
-        int count = 0;
-
-        try {
-            input = new Scanner(inputFile);
-            temp = input.nextInt();
-            boardSize = temp;
-            partitionSize = (int) Math.sqrt(boardSize);
-            System.out.println("Boardsize: " + temp + "x" + temp);
-            vals = new int[boardSize][boardSize];
-
-            System.out.println("Input:");
-            int i = 0;
-            int j = 0;
-            while (input.hasNext()){
-                temp = input.nextInt();
-                count++;
-                System.out.printf("%3d", temp);
-                vals[i][j] = temp;
-                if (temp == 0) {
-                    // TODO
-                }
-                j++;
-                if (j == boardSize) {
-                    j = 0;
-                    i++;
-                    System.out.println();
-                }
-                if (j == boardSize) {
-                    break;
-                }
+    // One shared solver for every engine and combination of options, indexed by solverIndex;
+    // they are safe to use from any thread
+    private static final SudokuSolver[] SOLVERS = new SudokuSolver[Engine.values().length * 4];
+
+    static {
+        for (Engine engine : Engine.values()) {
+            for (int options = 0; options < 4; options++) {
+                boolean presolve = (options & 2) != 0;
+                boolean collectStats = (options & 1) != 0;
+                SOLVERS[solverIndex(engine, presolve, collectStats)] = new SudokuSolver(engine, presolve, collectStats);
             }
-            input.close();
-        } catch (FileNotFoundException exception) {
-            System.out.println("Input file not found: " + filename);
-            ArrayList result = new ArrayList();
-            result.add(false);
-            return result;
         }
-        if (count != boardSize*boardSize) throw new RuntimeException("Incorrect number of inputs.");
+    }
 
-//        ArrayList<ArrayList<HashSet<Integer>>> available = setup(vals);
-        boolean solved = solve(vals, 0, 0);
+    private static int solverIndex(Engine engine, boolean presolve, boolean collectStats) {
+        return engine.ordinal() * 4 + (presolve ? 2 : 0) + (collectStats ? 1 : 0);
+    }
 
-        // Output
-        if (!solved) {
-            System.out.println("No solution found.");
-            ArrayList result = new ArrayList();
-            result.add(false);
-            return result;
-        }
-        System.out.println("\nOutput\n");
-        for (int i = 0; i < boardSize; i++) {
-            for (int j = 0; j < boardSize; j++) {
-                System.out.printf("%3d", vals[i][j]);
+    public static SolveResult solveFromFile(String filename){
+        return solveFromFile(filename, Engine.BACKTRACKING);
+    }
+
+    public static SolveResult solveFromFile(String filename, Engine engine){
+        return solveFromFile(filename, engine, false);
+    }
+
+    // With presolve, naked/hidden singles, naked pairs and pointing are applied before searching
+    public static SolveResult solveFromFile(String filename, Engine engine, boolean presolve){
+        return solveFromFile(filename, engine, presolve, false);
+    }
+
+    // With collectStats, the result carries the SearchStats of the solve
+    public static SolveResult solveFromFile(String filename, Engine engine, boolean presolve, boolean collectStats){
+        return SOLVERS[solverIndex(engine, presolve, collectStats)].solveFromFile(filename);
+    }
+
+    // Answers from the cache when it already holds the puzzle or a symmetric variant of it
+    public static SolveResult solveFromFile(String filename, Engine engine, SolutionCache cache){
+        return new SudokuSolver(engine, false, false, cache).solveFromFile(filename);
+    }
+
+    // Reads a board in the Data/*.txt format: the board size followed by every cell, 0 for blanks
+    public static int[][] readBoard(File inputFile) throws FileNotFoundException {
+        Scanner input = new Scanner(inputFile);
+        int[][] vals = readBoard(input);
+        boolean extra = input.hasNext();
+        input.close();
+        if (extra) throw new RuntimeException("Incorrect number of inputs.");
+        return vals;
+    }
+
+    // Reads one board from the scanner, leaving it positioned after the last cell
+    public static int[][] readBoard(Scanner input) {
+        int size = input.nextInt();
+        int[][] vals = new int[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (!input.hasNextInt()) throw new RuntimeException("Incorrect number of inputs.");
+                vals[i][j] = input.nextInt();
             }
-            System.out.println();
         }
+        return vals;
+    }
 
-        //Create file with output
-        String dest = "Output/" + inputFile.getName().replace(".txt", "") + "Solution.txt";
-        try {
-            File output = new File(dest);
-            if (!output.createNewFile()) {
-                output.delete();
-                output.createNewFile();
+    public static void printBoard(int[][] vals) {
+        for (int i = 0; i < vals.length; i++) {
+            for (int j = 0; j < vals.length; j++) {
+                System.out.printf("%3d", vals[i][j]);
             }
-        } catch (IOException e) {
-            System.out.println("Error creating output file for" + dest);
+            System.out.println();
         }
+    }
 
-        try {
-            FileWriter writer = new FileWriter(dest);
-            String line = "";
-            for(int i = 0; i < boardSize; i++){
-                for(int j = 0; j < boardSize; j++){
-                    line += vals[i][j] + " ";
+    // Writes a board one row per line, replacing whatever file was there before
+    public static void writeBoard(File dest, int[][] vals) throws IOException {
+        StringBuilder line = new StringBuilder();
+        try (FileWriter writer = new FileWriter(dest)) {
+            for (int i = 0; i < vals.length; i++) {
+                for (int j = 0; j < vals.length; j++) {
+                    line.append(vals[i][j]).append(' ');
                 }
-                line += "\n";
-                writer.write(line);
-                line = "";
+                line.append('\n');
+                writer.write(line.toString());
+                line.setLength(0);
             }
-            System.out.println("Wrote finished puzzle to " + dest);
-            writer.close();
-        } catch (IOException e) {
-            System.out.println("Error writing to file" + dest);
         }
-
-        ArrayList result = new ArrayList();
-        result.add(true);
-        result.add(vals);
-        return result;
-
     }
 
 //    public static ArrayList<ArrayList<HashSet<Integer>>> setup(int[][] vals){
@@ -152,12 +137,20 @@ public class Sudoku {
 //    }
 
     public static boolean solve(int vals[][], int i, int j){
+        return solve(vals, i, j, 0, null);
+    }
+
+    // depth counts the blanks filled so far; stats may be null
+    public static boolean solve(int vals[][], int i, int j, int depth, SearchStats stats){
+        int boardSize = vals.length;
+        int partitionSize = (int) Math.sqrt(boardSize);
         // If we have done all rows, it is solved
         if(i == boardSize) return true;
         // If we have done all cols, we move to the next row
-        if(j == boardSize) return solve(vals, i + 1, 0);
+        if(j == boardSize) return solve(vals, i + 1, 0, depth, stats);
         // If the val is not 0, it is a given number so it should not be changed
-        if(vals [i][j] != 0) return solve(vals, i, j + 1);
+        if(vals [i][j] != 0) return solve(vals, i, j + 1, depth, stats);
+        if(stats != null) stats.node(depth);
         // Now we make a stack with values 1-9
         Stack<Integer> stack = new Stack<Integer>();
         int count = 1;
@@ -182,11 +175,12 @@ public class Sudoku {
             // If the stack is empty, we have nothing else to try and backtrack
             if(stack.isEmpty()){
                vals[i][j] = 0;
+               if(stats != null) stats.backtrack(depth);
                return false;
             }
             else{
                 vals[i][j] = stack.pop();
-                solved = solve(vals, i, j + 1);
+                solved = solve(vals, i, j + 1, depth + 1, stats);
             }
         }
         return true;
@@ -0,0 +1,149 @@
+/**
+ * One board being filled in by hand. Placing or clearing a digit updates the candidate
+ * masks in place, so candidates are always current without re-reading or re-solving
+ * the board. Whether the board can still be solved is worked out on demand and kept
+ * until the next change, and most changes do not even throw it away: clearing a digit
+ * or placing the digit the known solution has there leaves that solution valid, and
+ * placing any digit on a board that cannot be solved leaves it unsolvable.
+ *
+ * A session belongs to one user, so it is not safe to share between threads.
+ */
+public class SudokuSession {
+
+    private final int boardSize;
+    private final int[][] vals;
+    private final boolean[][] given;
+    private final CandidateMasks masks;
+    private final SudokuSolver solver;
+    // Null until worked out after the last change that could alter it
+    private Boolean solvable;
+    // A solution consistent with the board whenever solvable is true
+    private int[][] solution;
+    private int filled;
+    private long solves;
+
+    // Checks solvability with presolving and MRV search
+    public SudokuSession(int[][] givens) {
+        this(givens, new SudokuSolver(Engine.MRV, true));
+    }
+
+    public SudokuSession(int[][] givens, SudokuSolver solver) {
+        this.boardSize = givens.length;
+        this.vals = new int[boardSize][boardSize];
+        this.given = new boolean[boardSize][boardSize];
+        this.masks = new CandidateMasks(boardSize);
+        this.solver = solver;
+        for (int i = 0; i < boardSize; i++) {
+            System.arraycopy(givens[i], 0, vals[i], 0, boardSize);
+            for (int j = 0; j < boardSize; j++) {
+                given[i][j] = givens[i][j] != 0;
+                if (given[i][j]) filled++;
+            }
+        }
+        if (!masks.load(vals)) throw new IllegalArgumentException("The givens clash or are out of range");
+    }
+
+    // Puts v in an empty or user-filled cell. Returns false, changing nothing, if the cell
+    // holds a given or v is already in the cell's row, column or partition.
+    public boolean place(int i, int j, int v) {
+        if (v < 1 || v > boardSize) throw new IllegalArgumentException("No such value: " + v);
+        if (given[i][j]) return false;
+        int old = vals[i][j];
+        if (old == v) return true;
+        if (old != 0) masks.unassign(i, j, old);
+        if ((masks.candidates(i, j) & 1L << (v - 1)) == 0) {
+            if (old != 0) masks.assign(i, j, old);
+            return false;
+        }
+        masks.assign(i, j, v);
+        vals[i][j] = v;
+        if (old == 0) filled++;
+        // Overwriting a digit is a clear followed by a place
+        if (old != 0 && Boolean.FALSE.equals(solvable)) solvable = null;
+        if (Boolean.TRUE.equals(solvable) && solution[i][j] != v) solvable = null;
+        return true;
+    }
+
+    // Empties a user-filled cell. Returns false for a given.
+    public boolean clear(int i, int j) {
+        if (given[i][j]) return false;
+        int old = vals[i][j];
+        if (old == 0) return true;
+        masks.unassign(i, j, old);
+        vals[i][j] = 0;
+        filled--;
+        if (Boolean.FALSE.equals(solvable)) solvable = null;
+        return true;
+    }
+
+    public int get(int i, int j) {
+        return vals[i][j];
+    }
+
+    public boolean isGiven(int i, int j) {
+        return given[i][j];
+    }
+
+    // Bit v - 1 is set for every value v that fits the cell; 0 for a filled cell
+    public long getCandidateMask(int i, int j) {
+        return vals[i][j] != 0 ? 0 : masks.candidates(i, j);
+    }
+
+    public int[] getCandidates(int i, int j) {
+        long mask = getCandidateMask(i, j);
+        int[] values = new int[Long.bitCount(mask)];
+        for (int k = 0; k < values.length; k++) {
+            values[k] = Long.numberOfTrailingZeros(mask) + 1;
+            mask &= mask - 1;
+        }
+        return values;
+    }
+
+    public boolean isComplete() {
+        return filled == boardSize * boardSize;
+    }
+
+    public boolean isSolvable() {
+        if (solvable == null) {
+            solvable = check();
+        }
+        return solvable;
+    }
+
+    // A solution that agrees with every digit on the board, or null if there is none
+    public int[][] getSolution() {
+        if (!isSolvable()) return null;
+        return copy(solution);
+    }
+
+    public int[][] getBoard() {
+        return copy(vals);
+    }
+
+    // How many times the session has had to run the solver
+    public long getSolves() {
+        return solves;
+    }
+
+    private boolean check() {
+        // A cell with nothing left to take fails without searching
+        for (int i = 0; i < boardSize; i++) {
+            for (int j = 0; j < boardSize; j++) {
+                if (vals[i][j] == 0 && masks.candidates(i, j) == 0) return false;
+            }
+        }
+        int[][] attempt = copy(vals);
+        solves++;
+        if (!solver.solve(attempt)) return false;
+        solution = attempt;
+        return true;
+    }
+
+    private int[][] copy(int[][] board) {
+        int[][] copy = new int[boardSize][];
+        for (int i = 0; i < boardSize; i++) {
+            copy[i] = board[i].clone();
+        }
+        return copy;
+    }
+}
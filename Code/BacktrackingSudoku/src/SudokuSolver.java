@@ -0,0 +1,257 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Solves boards with one engine. All per-puzzle state lives in a per-thread workspace
+ * that is kept between calls, so one instance can be shared by any number of threads
+ * and solving another puzzle of the same size does not allocate a new engine.
+ * With presolve on, a LogicalSolver pass fills in everything it can deduce before
+ * the engine starts searching. With collectStats on, solveFromFile records SearchStats.
+ * With a SolutionCache, puzzles it has seen before (or symmetric variants of them) are
+ * answered from it, and every new solution is added to it. Killer cages after the board
+ * in a file given to solveFromFile are solved by Engine.CSP and rejected by the others.
+ */
+public class SudokuSolver {
+
+    private final Engine engine;
+    private final boolean presolve;
+    private final boolean collectStats;
+    private final SolutionCache cache;
+    private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+
+    public SudokuSolver(Engine engine) {
+        this(engine, false);
+    }
+
+    public SudokuSolver(Engine engine, boolean presolve) {
+        this(engine, presolve, false);
+    }
+
+    public SudokuSolver(Engine engine, boolean presolve, boolean collectStats) {
+        this(engine, presolve, collectStats, null);
+    }
+
+    // cache may be null
+    public SudokuSolver(Engine engine, boolean presolve, boolean collectStats, SolutionCache cache) {
+        this.engine = engine;
+        this.presolve = presolve;
+        this.collectStats = collectStats;
+        this.cache = cache;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public boolean isPresolve() {
+        return presolve;
+    }
+
+    public boolean isCollectStats() {
+        return collectStats;
+    }
+
+    public SolutionCache getCache() {
+        return cache;
+    }
+
+    // Solves the board in place, returning false if it has no solution
+    public boolean solve(int[][] vals) {
+        return solve(vals, null);
+    }
+
+    // Same as solve, recording into stats unless it is null
+    public boolean solve(int[][] vals, SearchStats stats) {
+        workspaces.get().clearRun();
+        if (stats != null) stats.start();
+        boolean solved;
+        if (cache == null) {
+            solved = search(vals, stats);
+        } else {
+            solved = searchCached(vals, stats);
+        }
+        if (stats != null) stats.finish();
+        return solved;
+    }
+
+    private boolean searchCached(int[][] vals, SearchStats stats) {
+        int[][] cached = cache.lookup(vals);
+        if (cached != null) {
+            copy(cached, vals);
+            return true;
+        }
+        int[][] givens = new int[vals.length][vals.length];
+        copy(vals, givens);
+        boolean solved = search(vals, stats);
+        if (solved) cache.store(givens, vals);
+        return solved;
+    }
+
+    private static void copy(int[][] from, int[][] to) {
+        for (int i = 0; i < from.length; i++) {
+            System.arraycopy(from[i], 0, to[i], 0, from.length);
+        }
+    }
+
+    // The cache only knows the givens, so a board with cages always goes to a caged CspSolver
+    private boolean solveCaged(int[][] vals, List<CspSolver.Cage> cages, SearchStats stats) {
+        workspaces.get().clearRun();
+        if (stats != null) stats.start();
+        boolean solved = search(vals, stats, cages);
+        if (stats != null) stats.finish();
+        return solved;
+    }
+
+    private boolean search(int[][] vals, SearchStats stats) {
+        return search(vals, stats, Collections.<CspSolver.Cage>emptyList());
+    }
+
+    private boolean search(int[][] vals, SearchStats stats, List<CspSolver.Cage> cages) {
+        Workspace workspace = workspaces.get();
+        workspace.prepare(vals.length);
+        if (presolve) {
+            // Cages only add constraints, so what the plain rules force still holds
+            boolean consistent = workspace.logical.propagate(vals);
+            if (stats != null) stats.propagated(workspace.logical.getPlacements());
+            if (!consistent) return false;
+            if (isFull(vals) && cages.isEmpty()) return true;
+        }
+        if (!cages.isEmpty()) return new CspSolver(vals.length, cages).solve(vals, stats);
+        if (workspace.solver instanceof RestartSolver) {
+            // Keep what the restarts did for solveFromFile's result
+            SolveResult run = ((RestartSolver) workspace.solver).solve(vals, stats, null);
+            workspace.timedOut = run.isTimedOut();
+            workspace.restarts = run.getRestarts();
+            return run.isSolved();
+        }
+        return workspace.solver.solve(vals, stats);
+    }
+
+    private static boolean isFull(int[][] vals) {
+        for (int[] row : vals) {
+            for (int v : row) {
+                if (v == 0) return false;
+            }
+        }
+        return true;
+    }
+
+    public SolveResult solveFromFile(String filename){
+        File inputFile = new File(filename);
+        int[][] vals = null;
+
+        List<CspSolver.Cage> cages;
+        try (Scanner input = new Scanner(inputFile)) {
+            vals = Sudoku.readBoard(input);
+            cages = readCages(input, vals.length);
+        } catch (FileNotFoundException exception) {
+            System.out.println("Input file not found: " + filename);
+            return new SolveResult(false, null, null);
+        }
+        int boardSize = vals.length;
+        System.out.println("Boardsize: " + boardSize + "x" + boardSize);
+        System.out.println("Input:");
+        Sudoku.printBoard(vals);
+
+        SearchStats stats = collectStats ? new SearchStats() : null;
+        boolean solved = cages.isEmpty() ? solve(vals, stats) : solveCaged(vals, cages, stats);
+        if (stats != null) System.out.print(stats);
+
+        Workspace workspace = workspaces.get();
+
+        // Output
+        if (!solved) {
+            System.out.println("No solution found.");
+            return new SolveResult(false, null, stats, workspace.timedOut, workspace.restarts);
+        }
+        System.out.println("\nOutput\n");
+        Sudoku.printBoard(vals);
+
+        //Create file with output
+        String dest = "Output/" + inputFile.getName().replace(".txt", "") + "Solution.txt";
+        try {
+            Sudoku.writeBoard(new File(dest), vals);
+            System.out.println("Wrote finished puzzle to " + dest);
+        } catch (IOException e) {
+            System.out.println("Error writing to file" + dest);
+        }
+
+        return new SolveResult(true, vals, stats, false, workspace.restarts);
+    }
+
+    // Anything after the board has to be killer cages, and only the CSP engine takes those
+    private List<CspSolver.Cage> readCages(Scanner input, int boardSize) {
+        if (!input.hasNext()) return Collections.emptyList();
+        if (!input.hasNext("cage")) throw new RuntimeException("Incorrect number of inputs.");
+        if (engine != Engine.CSP) throw new RuntimeException("Killer cages can only be solved with Engine.CSP, not " + engine);
+        return CspSolver.readCages(input, boardSize);
+    }
+
+    private BoardSolver newBoardSolver(int boardSize) {
+        switch (engine) {
+            case BITMASK:
+                return new BitmaskSolver(boardSize);
+            case MRV:
+                return new MrvSolver(boardSize);
+            case DANCING_LINKS:
+                return new DancingLinksSolver(boardSize);
+            case PARALLEL:
+                return new ParallelSolver(boardSize, ForkJoinPool.commonPool(), ParallelSolver.DEFAULT_SPLIT_DEPTH);
+            case ITERATIVE:
+                return new IterativeSolver(boardSize);
+            case SAT:
+                return new SatSolver(boardSize);
+            case RESTARTS:
+                return new RestartSolver(boardSize);
+            case BACKJUMPING:
+                return new BackjumpSolver(boardSize);
+            case CSP:
+                return new CspSolver(boardSize);
+            case PORTFOLIO:
+                return new PortfolioSolver();
+            case SCAN:
+                return new ScanSolver(boardSize);
+            case OFF_HEAP:
+                return newOffHeapSolver(boardSize);
+            default:
+                return (vals, stats) -> Sudoku.solve(vals, 0, 0, 0, stats);
+        }
+    }
+
+    // OffHeapSolver builds on a preview API, so it lives in a module of its own and is only found by name
+    private static BoardSolver newOffHeapSolver(int boardSize) {
+        try {
+            return (BoardSolver) Class.forName("OffHeapSolver").getConstructor(int.class).newInstance(boardSize);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new UnsupportedOperationException("OFF_HEAP needs the OffHeap module on the class path and JDK 21 run with --enable-preview", e);
+        }
+    }
+
+    // The engine a thread used last, reused while the board size stays the same
+    private class Workspace {
+
+        private int boardSize = -1;
+        private BoardSolver solver;
+        private LogicalSolver logical;
+        // What the last solve on this thread reported besides solved or not, for RESTARTS
+        private boolean timedOut;
+        private int restarts;
+
+        private void prepare(int size) {
+            if (size == boardSize) return;
+            solver = newBoardSolver(size);
+            logical = presolve ? new LogicalSolver(size) : null;
+            boardSize = size;
+        }
+
+        private void clearRun() {
+            timedOut = false;
+            restarts = 0;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * The variables in the scope add up to a total. Propagation is complete: a value stays
+ * only if some choice of values for the other variables makes up the rest of the total.
+ * It works on bitsets of reachable partial sums, forward from the first variable and
+ * backward from the last, so it costs about scope length times domain size word shifts.
+ */
+public class SumConstraint extends Constraint {
+
+    private final int total;
+    private final int words;
+    // Partial sums reachable over scope[0..k), and partial sums from which scope[k..] can reach the total
+    private final long[][] forward;
+    private final long[][] backward;
+    private final long[] shifted;
+
+    public SumConstraint(int total, int... scope) {
+        super(scope);
+        if (total < 0) throw new IllegalArgumentException("Negative total: " + total);
+        this.total = total;
+        this.words = total / 64 + 1;
+        this.forward = new long[scope.length + 1][words];
+        this.backward = new long[scope.length + 1][words];
+        this.shifted = new long[words];
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    @Override
+    public boolean propagate(ConstraintSolver solver) {
+        int n = scope.length;
+        clear(forward[0]);
+        set(forward[0], 0);
+        for (int k = 0; k < n; k++) {
+            clear(forward[k + 1]);
+            long domain = solver.getDomain(scope[k]);
+            while (domain != 0) {
+                int v = Long.numberOfTrailingZeros(domain) + 1;
+                domain &= domain - 1;
+                orShifted(forward[k + 1], forward[k], v);
+            }
+        }
+        if (!get(forward[n], total)) return false;
+
+        clear(backward[n]);
+        set(backward[n], total);
+        for (int k = n - 1; k >= 0; k--) {
+            clear(backward[k]);
+            long domain = solver.getDomain(scope[k]);
+            while (domain != 0) {
+                int v = Long.numberOfTrailingZeros(domain) + 1;
+                domain &= domain - 1;
+                orShifted(backward[k], backward[k + 1], -v);
+            }
+        }
+
+        for (int k = 0; k < n; k++) {
+            long domain = solver.getDomain(scope[k]);
+            long supported = 0;
+            long rest = domain;
+            while (rest != 0) {
+                long bit = rest & -rest;
+                rest ^= bit;
+                int v = Long.numberOfTrailingZeros(bit) + 1;
+                clear(shifted);
+                orShifted(shifted, forward[k], v);
+                if (intersects(shifted, backward[k + 1])) supported |= bit;
+            }
+            if (supported != domain && !solver.restrict(scope[k], supported)) return false;
+        }
+        return true;
+    }
+
+    // to |= from shifted up by by bits (down for negative by), dropping bits past the total
+    private void orShifted(long[] to, long[] from, int by) {
+        if (by >= 0) {
+            int wordShift = by >>> 6;
+            int bitShift = by & 63;
+            for (int w = words - 1; w >= wordShift; w--) {
+                long value = from[w - wordShift] << bitShift;
+                if (bitShift != 0 && w - wordShift - 1 >= 0) value |= from[w - wordShift - 1] >>> (64 - bitShift);
+                to[w] |= value;
+            }
+        } else {
+            by = -by;
+            int wordShift = by >>> 6;
+            int bitShift = by & 63;
+            for (int w = 0; w + wordShift < words; w++) {
+                long value = from[w + wordShift] >>> bitShift;
+                if (bitShift != 0 && w + wordShift + 1 < words) value |= from[w + wordShift + 1] << (64 - bitShift);
+                to[w] |= value;
+            }
+        }
+        // Sums above the total can never come back down
+        int top = total & 63;
+        if (top != 63) to[words - 1] &= (1L << (top + 1)) - 1;
+    }
+
+    private static void clear(long[] bits) {
+        for (int w = 0; w < bits.length; w++) bits[w] = 0;
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static boolean get(long[] bits, int index) {
+        return (bits[index >>> 6] & 1L << index) != 0;
+    }
+
+    private static boolean intersects(long[] a, long[] b) {
+        for (int w = 0; w < a.length; w++) {
+            if ((a[w] & b[w]) != 0) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,221 @@
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Catches the slowdowns SudokuTest cannot see. Every puzzle in Data is solved by each
+ * deterministic engine that handles it in well under a second, and the suite fails when
+ * a change makes an engine expand more than NODE_SLACK times the recorded number of
+ * search nodes, or blows through the wall-clock bound.
+ *
+ * Node counts are the real check: they are the same on every run and every machine, so
+ * they catch a search that got worse without being thrown off by a busy CI box. The time
+ * bounds are twenty times a cold run on a single slow core and only catch the really bad
+ * cases, like a change that keeps the node count but makes each node far more expensive.
+ *
+ * When a change is meant to alter the search, run main and paste its rows over the ones
+ * below. PARALLEL and PORTFOLIO are left out since their node counts depend on scheduling.
+ */
+class PerformanceTest {
+
+    // How far past its baseline a node count may drift before it counts as a regression
+    private static final double NODE_SLACK = 1.1;
+    // Baselines of a handful of nodes get a little absolute room as well
+    private static final long MIN_NODE_SLACK = 10;
+    // main only records engines that solve a puzzle within this long
+    private static final long RECORD_MILLIS = 1000;
+
+    @ParameterizedTest(name = "{0} {1}")
+    @CsvSource({
+            // puzzle, engine, solvable, nodes, time bound in milliseconds
+            "sudoku9Easy, BACKTRACKING, true, 777, 1000",
+            "sudoku9Easy, BITMASK, true, 200, 1000",
+            "sudoku9Easy, MRV, true, 49, 1000",
+            "sudoku9Easy, DANCING_LINKS, true, 49, 1000",
+            "sudoku9Easy, ITERATIVE, true, 200, 1000",
+            "sudoku9Easy, SAT, true, 0, 1000",
+            "sudoku9Easy, BACKJUMPING, true, 49, 1000",
+            "sudoku9Easy, RESTARTS, true, 49, 1000",
+            "sudoku9Easy, CSP, true, 0, 1000",
+            "sudoku9Easy, SCAN, true, 49, 1000",
+            "sudoku9Empty, BACKTRACKING, true, 391, 1000",
+            "sudoku9Empty, BITMASK, true, 391, 1000",
+            "sudoku9Empty, MRV, true, 81, 1000",
+            "sudoku9Empty, DANCING_LINKS, true, 81, 1000",
+            "sudoku9Empty, ITERATIVE, true, 391, 1000",
+            "sudoku9Empty, SAT, true, 117, 1000",
+            "sudoku9Empty, BACKJUMPING, true, 81, 1000",
+            "sudoku9Empty, RESTARTS, true, 81, 1000",
+            "sudoku9Empty, CSP, true, 47, 1000",
+            "sudoku9Empty, SCAN, true, 81, 1000",
+            "sudoku9Hard, BACKTRACKING, true, 43872, 5500",
+            "sudoku9Hard, BITMASK, true, 26777, 1000",
+            "sudoku9Hard, MRV, true, 60, 1000",
+            "sudoku9Hard, DANCING_LINKS, true, 55, 1000",
+            "sudoku9Hard, ITERATIVE, true, 26777, 1000",
+            "sudoku9Hard, SAT, true, 0, 1000",
+            "sudoku9Hard, BACKJUMPING, true, 60, 1000",
+            "sudoku9Hard, RESTARTS, true, 142, 1000",
+            "sudoku9Hard, CSP, true, 0, 1000",
+            "sudoku9Hard, SCAN, true, 55, 1000",
+            "sudoku9Hardest, BITMASK, true, 49558, 1000",
+            "sudoku9Hardest, MRV, true, 5401, 1000",
+            "sudoku9Hardest, DANCING_LINKS, true, 1471, 1000",
+            "sudoku9Hardest, ITERATIVE, true, 49558, 1000",
+            "sudoku9Hardest, SAT, true, 100, 1000",
+            "sudoku9Hardest, BACKJUMPING, true, 4911, 1000",
+            "sudoku9Hardest, RESTARTS, true, 6211, 1500",
+            "sudoku9Hardest, CSP, true, 89, 1000",
+            "sudoku9Hardest, SCAN, true, 6190, 1000",
+            "sudoku9Medium, BACKTRACKING, true, 3766, 1500",
+            "sudoku9Medium, BITMASK, true, 3588, 1000",
+            "sudoku9Medium, MRV, true, 96, 1000",
+            "sudoku9Medium, DANCING_LINKS, true, 53, 1000",
+            "sudoku9Medium, ITERATIVE, true, 3588, 1000",
+            "sudoku9Medium, SAT, true, 3, 1000",
+            "sudoku9Medium, BACKJUMPING, true, 96, 1000",
+            "sudoku9Medium, RESTARTS, true, 146, 1000",
+            "sudoku9Medium, CSP, true, 1, 1000",
+            "sudoku9Medium, SCAN, true, 84, 1000",
+            "sudoku9OneSpot, BACKTRACKING, true, 1, 1000",
+            "sudoku9OneSpot, BITMASK, true, 1, 1000",
+            "sudoku9OneSpot, MRV, true, 1, 1000",
+            "sudoku9OneSpot, DANCING_LINKS, true, 1, 1000",
+            "sudoku9OneSpot, ITERATIVE, true, 1, 1000",
+            "sudoku9OneSpot, SAT, true, 0, 1000",
+            "sudoku9OneSpot, BACKJUMPING, true, 1, 1000",
+            "sudoku9OneSpot, RESTARTS, true, 1, 1000",
+            "sudoku9OneSpot, CSP, true, 0, 1000",
+            "sudoku9OneSpot, SCAN, true, 1, 1000",
+            "sudoku9Unsolvable, BACKTRACKING, false, 378, 1000",
+            "sudoku9Unsolvable, BITMASK, false, 378, 1000",
+            "sudoku9Unsolvable, MRV, false, 2, 1000",
+            "sudoku9Unsolvable, DANCING_LINKS, false, 4, 1000",
+            "sudoku9Unsolvable, ITERATIVE, false, 378, 1000",
+            "sudoku9Unsolvable, SAT, false, 0, 1000",
+            "sudoku9Unsolvable, BACKJUMPING, false, 2, 1000",
+            "sudoku9Unsolvable, RESTARTS, false, 2, 1000",
+            "sudoku9Unsolvable, CSP, false, 0, 1000",
+            "sudoku9Unsolvable, SCAN, false, 2, 1000",
+            "sudoku9VeryHard, BACKTRACKING, true, 49454, 6500",
+            "sudoku9VeryHard, BITMASK, true, 16161, 1000",
+            "sudoku9VeryHard, MRV, true, 148, 1000",
+            "sudoku9VeryHard, DANCING_LINKS, true, 82, 1000",
+            "sudoku9VeryHard, ITERATIVE, true, 16161, 1000",
+            "sudoku9VeryHard, SAT, true, 5, 1000",
+            "sudoku9VeryHard, BACKJUMPING, true, 148, 1000",
+            "sudoku9VeryHard, RESTARTS, true, 125, 1000",
+            "sudoku9VeryHard, CSP, true, 2, 1000",
+            "sudoku9VeryHard, SCAN, true, 196, 1000",
+            "sudoku16Medium, DANCING_LINKS, true, 160, 1000",
+            "sudoku16Medium, SAT, true, 0, 1000",
+            "sudoku16Medium, CSP, true, 0, 1000",
+            "sudoku16ReallyHard, MRV, true, 122875, 7000",
+            "sudoku16ReallyHard, DANCING_LINKS, true, 428, 1000",
+            "sudoku16ReallyHard, SAT, true, 4, 1000",
+            "sudoku16ReallyHard, BACKJUMPING, true, 65536, 12000",
+            "sudoku16ReallyHard, CSP, true, 10, 1000",
+            "sudoku16ReallyHard, SCAN, true, 62260, 2500",
+            "sudokuEmpty16, BACKTRACKING, true, 256, 1000",
+            "sudokuEmpty16, BITMASK, true, 256, 1000",
+            "sudokuEmpty16, MRV, true, 258, 1000",
+            "sudokuEmpty16, DANCING_LINKS, true, 256, 1000",
+            "sudokuEmpty16, ITERATIVE, true, 256, 1000",
+            "sudokuEmpty16, SAT, true, 672, 4500",
+            "sudokuEmpty16, BACKJUMPING, true, 258, 1000",
+            "sudokuEmpty16, RESTARTS, true, 279, 1000",
+            "sudokuEmpty16, CSP, true, 176, 1000",
+            "sudokuEmpty16, SCAN, true, 284, 1000",
+            "sudoku25Killer, MRV, true, 312, 1000",
+            "sudoku25Killer, DANCING_LINKS, true, 312, 1500",
+            "sudoku25Killer, SAT, true, 0, 1500",
+            "sudoku25Killer, BACKJUMPING, true, 312, 1000",
+            "sudoku25Killer, RESTARTS, true, 312, 1000",
+            "sudoku25Killer, CSP, true, 0, 1000",
+            "sudoku25Killer, SCAN, true, 312, 1000",
+            "sudoku25New, SAT, true, 369, 3000",
+            "sudokuEmpty25, MRV, true, 3177, 2000",
+            "sudokuEmpty25, DANCING_LINKS, true, 8245, 2000",
+            "sudokuEmpty25, SAT, true, 12818, 16000",
+            "sudokuEmpty25, BACKJUMPING, true, 25851, 8500",
+            "sudokuEmpty25, RESTARTS, true, 2963, 2000",
+            "sudokuEmpty25, CSP, true, 462, 3000",
+            "sudoku36Hard, CSP, true, 890, 5500"
+    })
+    void withinBaseline(String puzzle, Engine engine, boolean solvable, long nodes, long boundMillis) throws FileNotFoundException {
+        int[][] vals = Sudoku.readBoard(new File("Data/" + puzzle + ".txt"));
+        Deadline stats = new Deadline(boundMillis);
+        boolean solved;
+        try {
+            solved = new SudokuSolver(engine).solve(vals, stats);
+        } catch (OverBudget e) {
+            fail(engine + " took longer than " + boundMillis + " ms on " + puzzle + " after " + stats.getNodes() + " nodes");
+            return;
+        }
+        assertEquals(solvable, solved);
+        assertTrue(stats.getTotalNanos() <= boundMillis * 1_000_000L,
+                () -> engine + " took " + stats.getTotalNanos() / 1_000_000 + " ms on " + puzzle + ", bound " + boundMillis);
+        long allowed = Math.max((long) (nodes * NODE_SLACK), nodes + MIN_NODE_SLACK);
+        assertTrue(stats.getNodes() <= allowed,
+                () -> engine + " expanded " + stats.getNodes() + " nodes on " + puzzle + ", baseline " + nodes);
+    }
+
+    // Stats that give up on a search once it runs past its deadline, so a regression
+    // fails the suite promptly instead of leaving a runaway solve behind
+    private static class Deadline extends SearchStats {
+
+        private final long deadline;
+
+        private Deadline(long millis) {
+            this.deadline = System.nanoTime() + millis * 1_000_000L;
+        }
+
+        @Override
+        public void node(int depth) {
+            super.node(depth);
+            if (System.nanoTime() > deadline) throw new OverBudget();
+        }
+
+        @Override
+        public void backtrack(int depth) {
+            super.backtrack(depth);
+            if (System.nanoTime() > deadline) throw new OverBudget();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class OverBudget extends RuntimeException {
+    }
+
+    // Prints fresh baseline rows for every engine that solves a puzzle within RECORD_MILLIS;
+    // the bound is twenty times the time taken, rounded up to half a second, and at least a second
+    public static void main(String[] args) throws FileNotFoundException {
+        File[] puzzles = new File("Data").listFiles((dir, name) -> name.endsWith(".txt"));
+        if (puzzles == null) return;
+        Arrays.sort(puzzles);
+        for (File puzzle : puzzles) {
+            String name = puzzle.getName().substring(0, puzzle.getName().length() - ".txt".length());
+            for (Engine engine : Engine.values()) {
+                // OFF_HEAP visits the same nodes as MRV, and only loads on JDK 21 with --enable-preview
+                if (engine == Engine.PARALLEL || engine == Engine.PORTFOLIO || engine == Engine.OFF_HEAP) continue;
+                int[][] vals = Sudoku.readBoard(puzzle);
+                Deadline stats = new Deadline(RECORD_MILLIS);
+                boolean solved;
+                try {
+                    solved = new SudokuSolver(engine).solve(vals, stats);
+                } catch (OverBudget e) {
+                    continue;
+                }
+                long millis = stats.getTotalNanos() / 1_000_000;
+                if (millis > RECORD_MILLIS) continue;
+                long bound = Math.max(1000, (millis * 20 + 499) / 500 * 500);
+                System.out.printf("            \"%s, %s, %b, %d, %d\",%n", name, engine, solved, stats.getNodes(), bound);
+            }
+        }
+    }
+}
@@ -1,94 +1,979 @@
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class SudokuTest {
 
     @Test
     void solve9Easy() {
-        ArrayList result = Sudoku.solveFromFile("Data/sudoku9Easy.txt");
-        assertEquals(true, result.get(0));
-        assertEquals(true, isSolved((int[][]) result.get(1)));
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Easy.txt");
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
     }
 
     @Test
     void solve9Empty() {
-        ArrayList result = Sudoku.solveFromFile("Data/sudoku9Empty.txt");
-        assertEquals(true, result.get(0));
-        assertEquals(true, isSolved((int[][]) result.get(1)));
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Empty.txt");
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
     }
 
     @Test
     void solve9Hard() {
-        ArrayList result = Sudoku.solveFromFile("Data/sudoku9Hard.txt");
-        assertEquals(true, result.get(0));
-        assertEquals(true, isSolved((int[][]) result.get(1)));
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Hard.txt");
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
     }
 
     @Test
     void solve9Hardest() {
-        ArrayList result = Sudoku.solveFromFile("Data/sudoku9Hardest.txt");
-        assertEquals(true, result.get(0));
-        assertEquals(true, isSolved((int[][]) result.get(1)));
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Hardest.txt");
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
     }
 
     @Test
     void solve9Medium() {
-        ArrayList result = Sudoku.solveFromFile("Data/sudoku9Medium.txt");
-        assertEquals(true, result.get(0));
-        assertEquals(true, isSolved((int[][]) result.get(1)));
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Medium.txt");
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
     }
 
     @Test
     void solve9OneSpot() {
-        ArrayList result = Sudoku.solveFromFile("Data/sudoku9OneSpot.txt");
-        assertEquals(true, result.get(0));
-        assertEquals(true, isSolved((int[][]) result.get(1)));
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9OneSpot.txt");
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
     }
 
     @Test
     void solve9Unsolvable() {
-        ArrayList result = Sudoku.solveFromFile("Data/sudoku9Unsolvable.txt");
-        assertEquals(false, result.get(0));
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Unsolvable.txt");
+        assertEquals(false, result.isSolved());
     }
 
     @Test
     void solve9VeryHard() {
-        ArrayList result = Sudoku.solveFromFile("Data/sudoku9VeryHard.txt");
-        assertEquals(true, result.get(0));
-        assertEquals(true, isSolved((int[][]) result.get(1)));
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9VeryHard.txt");
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
     }
 
     @Test
     void solve16Medium() {
-        ArrayList result = Sudoku.solveFromFile("Data/sudoku16Medium.txt");
-        assertEquals(true, result.get(0));
-        assertEquals(true, isSolved((int[][]) result.get(1)));
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku16Medium.txt");
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
     }
 
     @Test
     void solve16ReallyHard() {
-        ArrayList result = Sudoku.solveFromFile("Data/sudoku16ReallyHard.txt");
-        assertEquals(true, result.get(0));
-        assertEquals(true, isSolved((int[][]) result.get(1)));
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku16ReallyHard.txt");
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
     }
 
     @Test
     void solve16Empty() {
-        ArrayList result = Sudoku.solveFromFile("Data/sudokuEmpty16.txt");
-        assertEquals(true, result.get(0));
-        assertEquals(true, isSolved((int[][]) result.get(1)));
+        SolveResult result = Sudoku.solveFromFile("Data/sudokuEmpty16.txt");
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
     }
 
     @Test
     void solve25Empty() {
-        ArrayList result = Sudoku.solveFromFile("Data/sudokuEmpty25.txt");
-        assertEquals(true, result.get(0));
-        assertEquals(true, isSolved((int[][]) result.get(1)));
+        SolveResult result = Sudoku.solveFromFile("Data/sudokuEmpty25.txt");
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solve9HardestBitmask() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Hardest.txt", Engine.BITMASK);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solve9UnsolvableBitmask() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Unsolvable.txt", Engine.BITMASK);
+        assertEquals(false, result.isSolved());
+    }
+
+    @Test
+    void solve9VeryHardBitmask() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9VeryHard.txt", Engine.BITMASK);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solve16EmptyBitmask() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudokuEmpty16.txt", Engine.BITMASK);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solve9UnsolvableMrv() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Unsolvable.txt", Engine.MRV);
+        assertEquals(false, result.isSolved());
+    }
+
+    @Test
+    void solve16ReallyHardMrv() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku16ReallyHard.txt", Engine.MRV);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solve25KillerMrv() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku25Killer.txt", Engine.MRV);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solve25EmptyMrv() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudokuEmpty25.txt", Engine.MRV);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solve9UnsolvableDancingLinks() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Unsolvable.txt", Engine.DANCING_LINKS);
+        assertEquals(false, result.isSolved());
+    }
+
+    @Test
+    void solve16MediumDancingLinks() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku16Medium.txt", Engine.DANCING_LINKS);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solve25KillerDancingLinks() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku25Killer.txt", Engine.DANCING_LINKS);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solve36HardDancingLinks() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku36Hard.txt", Engine.DANCING_LINKS);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solve9UnsolvableParallel() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Unsolvable.txt", Engine.PARALLEL);
+        assertEquals(false, result.isSolved());
+    }
+
+    @Test
+    void solve9HardestParallel() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Hardest.txt", Engine.PARALLEL);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solve16ReallyHardParallel() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku16ReallyHard.txt", Engine.PARALLEL);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solve25KillerParallel() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku25Killer.txt", Engine.PARALLEL);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solve9UnsolvableSat() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Unsolvable.txt", Engine.SAT);
+        assertEquals(false, result.isSolved());
+    }
+
+    @Test
+    void solve9HardestSat() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Hardest.txt", Engine.SAT);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solve25NewSat() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku25New.txt", Engine.SAT);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solve36HardSat() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku36Hard.txt", Engine.SAT);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void cdclProvesPigeonholeUnsatisfiable() {
+        // Four pigeons in three holes; variable 3 * p + h + 1 puts pigeon p in hole h
+        CdclSolver sat = new CdclSolver(12);
+        for (int p = 0; p < 4; p++) {
+            sat.addClause(3 * p + 1, 3 * p + 2, 3 * p + 3);
+        }
+        for (int h = 0; h < 3; h++) {
+            for (int p = 0; p < 4; p++) {
+                for (int q = p + 1; q < 4; q++) {
+                    sat.addClause(-(3 * p + h + 1), -(3 * q + h + 1));
+                }
+            }
+        }
+        assertEquals(false, sat.solve());
+        assertTrue(sat.getConflicts() > 0);
+    }
+
+    @Test
+    void solve25KillerRestarts() throws Exception {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku25Killer.txt", Engine.RESTARTS);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+
+        // The restarts make it through SudokuSolver into the result
+        result = Sudoku.solveFromFile("Data/sudoku9Hardest.txt", Engine.RESTARTS);
+        SolveResult direct = new RestartSolver(9).solve(Sudoku.readBoard(new File("Data/sudoku9Hardest.txt")), null, null);
+        assertTrue(direct.getRestarts() > 0);
+        assertEquals(direct.getRestarts(), result.getRestarts());
+        assertEquals(false, result.isTimedOut());
+    }
+
+    @Test
+    void restartsAreReproducible() throws Exception {
+        SolveResult[] results = new SolveResult[2];
+        for (int run = 0; run < 2; run++) {
+            int[][] vals = Sudoku.readBoard(new File("Data/sudoku9Hardest.txt"));
+            results[run] = new RestartSolver(9, 42, RestartSolver.Schedule.GEOMETRIC, 10, 0).solve(vals, null, null);
+            assertEquals(true, isSolved(results[run].getBoard()));
+        }
+        assertTrue(results[0].getRestarts() > 0);
+        assertEquals(results[0].getRestarts(), results[1].getRestarts());
+    }
+
+    @Test
+    void restartsStopAtBudgetOrCancel() throws Exception {
+        int[][] vals = Sudoku.readBoard(new File("Data/sudoku25New.txt"));
+        RestartSolver budgeted = new RestartSolver(25, 1, RestartSolver.Schedule.LUBY, 100, 50000000L);
+        SolveResult result = budgeted.solve(vals, null, null);
+        assertEquals(false, result.isSolved());
+        assertEquals(true, result.isTimedOut());
+        assertEquals(0, vals[0][0]);
+
+        result = new RestartSolver(25).solve(vals, null, new AtomicBoolean(true));
+        assertEquals(true, result.isTimedOut());
+    }
+
+    @Test
+    void solve9UnsolvableBackjumping() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Unsolvable.txt", Engine.BACKJUMPING);
+        assertEquals(false, result.isSolved());
+    }
+
+    @Test
+    void solve25KillerBackjumping() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku25Killer.txt", Engine.BACKJUMPING);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void backjumpingVisitsFewerNodes() throws Exception {
+        int[][] board = Sudoku.readBoard(new File("Data/sudoku16ReallyHard.txt"));
+        BoardSolver[] solvers = {new MrvSolver(16), new BackjumpSolver(16, 0), new BackjumpSolver(16)};
+        long[] nodes = new long[solvers.length];
+        for (int s = 0; s < solvers.length; s++) {
+            int[][] vals = new int[16][];
+            for (int i = 0; i < 16; i++) vals[i] = board[i].clone();
+            SearchStats stats = new SearchStats();
+            assertEquals(true, solvers[s].solve(vals, stats));
+            assertEquals(true, isSolved(vals));
+            nodes[s] = stats.getNodes();
+        }
+        assertTrue(nodes[1] < nodes[0]);
+        assertTrue(nodes[2] <= nodes[1]);
+    }
+
+    @Test
+    void solve9UnsolvableCsp() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Unsolvable.txt", Engine.CSP);
+        assertEquals(false, result.isSolved());
+    }
+
+    @Test
+    void solve9HardestCsp() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Hardest.txt", Engine.CSP);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solve16ReallyHardCsp() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku16ReallyHard.txt", Engine.CSP);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solveKillerCagesCsp(@TempDir Path dir) throws Exception {
+        Path file = writeKillerFile(dir.resolve("killer.txt"));
+
+        Scanner input = new Scanner(file);
+        int[][] vals = Sudoku.readBoard(input);
+        List<CspSolver.Cage> cages = CspSolver.readCages(input, 9);
+        assertEquals(36, cages.size());
+        assertEquals(true, new CspSolver(9, cages).solve(vals, null));
+        assertEquals(true, isSolved(vals));
+        assertCagesHold(vals, cages);
+    }
+
+    @Test
+    void solveKillerFromFileCsp(@TempDir Path dir) throws Exception {
+        Path file = writeKillerFile(dir.resolve("sudoku9Killer.txt"));
+        Scanner input = new Scanner(file);
+        Sudoku.readBoard(input);
+        List<CspSolver.Cage> cages = CspSolver.readCages(input, 9);
+
+        for (boolean presolve : new boolean[]{false, true}) {
+            SolveResult result = Sudoku.solveFromFile(file.toString(), Engine.CSP, presolve);
+            assertEquals(true, result.isSolved());
+            assertEquals(true, isSolved(result.getBoard()));
+            assertCagesHold(result.getBoard(), cages);
+        }
+        RuntimeException e = assertThrows(RuntimeException.class, () -> Sudoku.solveFromFile(file.toString(), Engine.MRV));
+        assertTrue(e.getMessage().contains("Engine.CSP"));
+    }
+
+    // Cages over horizontal pairs of a known solution, with only the diagonal left as givens
+    private static Path writeKillerFile(Path file) throws IOException {
+        int[][] solution = Sudoku.readBoard(new File("Data/sudoku9Hardest.txt"));
+        assertEquals(true, new SudokuSolver(Engine.MRV).solve(solution));
+        StringBuilder text = new StringBuilder("9\n");
+        for (int i = 0; i < 9; i++) {
+            for (int j = 0; j < 9; j++) {
+                text.append(i == j ? solution[i][j] : 0).append(j == 8 ? "\n" : " ");
+            }
+        }
+        for (int i = 0; i < 9; i++) {
+            for (int j = 0; j < 8; j += 2) {
+                int cell = i * 9 + j;
+                text.append("cage ").append(solution[i][j] + solution[i][j + 1]).append(' ').append(cell).append(' ').append(cell + 1).append('\n');
+            }
+        }
+        return Files.write(file, text.toString().getBytes());
+    }
+
+    private static void assertCagesHold(int[][] vals, List<CspSolver.Cage> cages) {
+        for (CspSolver.Cage cage : cages) {
+            int sum = 0;
+            for (int cell : cage.getCells()) sum += vals[cell / 9][cell % 9];
+            assertEquals(cage.getSum(), sum);
+        }
+    }
+
+    @Test
+    void constraintSolverWithBinaryAndSum() {
+        ConstraintSolver csp = new ConstraintSolver();
+        int x = csp.addVariable(1, 9);
+        int y = csp.addVariable(1, 9);
+        int z = csp.addVariable(1, 9);
+        csp.addConstraint(new BinaryConstraint(x, y, (a, b) -> a < b));
+        csp.addConstraint(new BinaryConstraint(y, z, (a, b) -> a < b));
+        csp.addConstraint(new SumConstraint(24, x, y, z));
+        csp.setValueOrder(ConstraintSolver.HIGHEST);
+        assertEquals(true, csp.solve());
+        assertEquals(7, csp.getValue(x));
+        assertEquals(8, csp.getValue(y));
+        assertEquals(9, csp.getValue(z));
+
+        ConstraintSolver impossible = new ConstraintSolver();
+        int a = impossible.addVariable(1, 3);
+        int b = impossible.addVariable(1, 3);
+        impossible.addConstraint(new AllDifferent(a, b));
+        impossible.addConstraint(new SumConstraint(2, a, b));
+        assertEquals(false, impossible.solve());
+    }
+
+    @Test
+    void solve9UnsolvablePortfolio() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Unsolvable.txt", Engine.PORTFOLIO);
+        assertEquals(false, result.isSolved());
+    }
+
+    @Test
+    void solve9HardestPortfolio() throws IOException {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Hardest.txt", Engine.PORTFOLIO);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+        // The winner is logged even though the solve went through Engine.PORTFOLIO
+        List<String> log = Files.readAllLines(PortfolioSolver.LOG.toPath());
+        String[] row = log.get(log.size() - 1).split(",");
+        assertEquals("9x9", row[1]);
+        assertEquals("true", row[3]);
+    }
+
+    @Test
+    void portfolioCancelsLosers() throws Exception {
+        // The row-major backtracker would take far longer than the test runs for on this
+        // board, so the race only returns if it is stopped once dancing links answers
+        List<SudokuSolver> strategies = new ArrayList<>();
+        strategies.add(new SudokuSolver(Engine.BACKTRACKING));
+        strategies.add(new SudokuSolver(Engine.DANCING_LINKS));
+        PortfolioSolver portfolio = new PortfolioSolver(strategies);
+        int[][] vals = Sudoku.readBoard(new File("Data/sudoku36Hard.txt"));
+        SearchStats stats = new SearchStats();
+        PortfolioSolver.Outcome outcome = portfolio.race(vals, stats);
+        assertEquals(true, outcome.isSolved());
+        assertEquals(true, isSolved(vals));
+        assertEquals(Engine.DANCING_LINKS, outcome.getWinner().getEngine());
+        assertEquals(1, portfolio.getWins(1));
+        assertEquals(0, portfolio.getWins(0));
+        assertEquals(outcome.getNodes(), stats.getNodes());
+    }
+
+    @Test
+    void solve9UnsolvableScan() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Unsolvable.txt", Engine.SCAN);
+        assertEquals(false, result.isSolved());
+    }
+
+    @Test
+    void solve9HardestScan() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Hardest.txt", Engine.SCAN);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void scanKernelsAgree() throws Exception {
+        // Whichever kernel loaded has to pick exactly the cells the scalar one does, so
+        // both searches walk the same tree
+        for (String name : new String[]{"sudoku9Hardest", "sudokuEmpty16", "sudoku25Killer"}) {
+            int[][] puzzle = Sudoku.readBoard(new File("Data/" + name + ".txt"));
+            long[] nodes = new long[2];
+            CandidateKernel[] kernels = {new ScalarCandidateKernel(), CandidateKernel.load()};
+            for (int k = 0; k < kernels.length; k++) {
+                int[][] vals = new int[puzzle.length][];
+                for (int i = 0; i < puzzle.length; i++) vals[i] = puzzle[i].clone();
+                SearchStats stats = new SearchStats();
+                assertEquals(true, new ScanSolver(vals.length, kernels[k]).solve(vals, stats));
+                assertEquals(true, isSolved(vals));
+                nodes[k] = stats.getNodes();
+            }
+            assertEquals(nodes[0], nodes[1], name);
+        }
+    }
+
+    @Test
+    void distributedWorkersStealAndStop() throws Exception {
+        // With no split, the only subproblem goes to one worker, so the other can only
+        // join in by stealing; the same workers then take a second job
+        try (DistributedSolver solver = new DistributedSolver(16, 2, 0)) {
+            int[][] vals = Sudoku.readBoard(new File("Data/sudoku16ReallyHard.txt"));
+            SearchStats stats = new SearchStats();
+            assertEquals(true, solver.solve(vals, stats));
+            assertEquals(true, isSolved(vals));
+            assertTrue(solver.getSteals() > 0);
+            assertTrue(stats.getNodes() > 0);
+
+            // The top left cell has no value left, which only a worker finds out
+            int[][] dead = new int[16][16];
+            for (int j = 1; j < 16; j++) dead[0][j] = j;
+            dead[1][0] = 16;
+            assertEquals(false, solver.solve(dead, stats));
+
+            // A full board is only handed back if it is consistent
+            int[][] clash = new int[16][];
+            for (int i = 0; i < 16; i++) clash[i] = vals[i].clone();
+            clash[0][0] = clash[0][1];
+            assertEquals(false, solver.solve(clash, stats));
+            assertEquals(true, solver.solve(vals, stats));
+        }
+    }
+
+    @Test
+    void offHeapMatchesMrv() throws Exception {
+        SudokuSolver offHeap = new SudokuSolver(Engine.OFF_HEAP);
+        boolean loaded = true;
+        try {
+            offHeap.solve(new int[9][9]);
+        } catch (UnsupportedOperationException e) {
+            loaded = false;
+        }
+        assumeTrue(loaded, "OFF_HEAP needs the OffHeap module and JDK 21 with --enable-preview");
+
+        SudokuSolver mrv = new SudokuSolver(Engine.MRV);
+        for (String name : new String[]{"sudoku9Hardest", "sudoku9Unsolvable", "sudoku16ReallyHard", "sudoku25Killer"}) {
+            int[][] expected = Sudoku.readBoard(new File("Data/" + name + ".txt"));
+            int[][] vals = Sudoku.readBoard(new File("Data/" + name + ".txt"));
+            SearchStats mrvStats = new SearchStats();
+            SearchStats offHeapStats = new SearchStats();
+            assertEquals(mrv.solve(expected, mrvStats), offHeap.solve(vals, offHeapStats), name);
+            assertArrayEquals(expected, vals, name);
+            assertEquals(mrvStats.getNodes(), offHeapStats.getNodes(), name);
+            assertEquals(mrvStats.getBacktracks(), offHeapStats.getBacktracks(), name);
+        }
+
+        // Past the 64x64 that CandidateMasks can hold: a shifted-pattern solution with a
+        // third of its cells taken out
+        int[][] big = new int[81][81];
+        for (int i = 0; i < 81; i++) {
+            for (int j = 0; j < 81; j++) {
+                if ((i * 7 + j * 13) % 3 != 0) big[i][j] = (9 * (i % 9) + i / 9 + j) % 81 + 1;
+            }
+        }
+        assertEquals(true, offHeap.solve(big));
+        assertEquals(true, isSolved(big));
+    }
+
+    @Test
+    void solve9HardestIterative() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Hardest.txt", Engine.ITERATIVE);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solve9UnsolvableIterative() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Unsolvable.txt", Engine.ITERATIVE);
+        assertEquals(false, result.isSolved());
+    }
+
+    @Test
+    void solve64IterativeOnSmallStack() throws InterruptedException {
+        // A recursive solver overflows a 256k stack long before depth 64*64
+        int[][] vals = patternBoard(64);
+        boolean[] solved = new boolean[1];
+        Thread thread = new Thread(null, () -> solved[0] = new IterativeSolver(64).solve(vals), "solver", 256 * 1024);
+        thread.start();
+        thread.join();
+        assertEquals(true, solved[0]);
+        assertEquals(true, isSolved(vals));
+    }
+
+    @Test
+    void solveConcurrentlyWithOneSolver() throws Exception {
+        // Mixed board sizes on one shared instance must not leak state between threads
+        SudokuSolver solver = new SudokuSolver(Engine.MRV);
+        String[] files = {"Data/sudoku9Hardest.txt", "Data/sudoku16ReallyHard.txt", "Data/sudoku25Killer.txt", "Data/sudoku9VeryHard.txt"};
+        ExecutorService executor = Executors.newFixedThreadPool(files.length);
+        ArrayList<Future<int[][]>> futures = new ArrayList<>();
+        for (int round = 0; round < 3; round++) {
+            for (String file : files) {
+                futures.add(executor.submit(() -> {
+                    int[][] vals = Sudoku.readBoard(new File(file));
+                    return solver.solve(vals) ? vals : null;
+                }));
+            }
+        }
+        for (Future<int[][]> future : futures) {
+            assertEquals(true, isSolved(future.get()));
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    void solveBatchFromMultiPuzzleFile(@TempDir Path dir) throws Exception {
+        String[] files = {"Data/sudoku9Hardest.txt", "Data/sudoku9Unsolvable.txt", "Data/sudoku16ReallyHard.txt"};
+        StringBuilder corpus = new StringBuilder();
+        for (String file : files) {
+            corpus.append(new String(Files.readAllBytes(Paths.get(file)))).append('\n');
+        }
+        Path input = dir.resolve("corpus.txt");
+        Files.write(input, corpus.toString().getBytes());
+
+        BatchSolver batch = new BatchSolver(new SudokuSolver(Engine.MRV), 2, 1, dir.toFile(), false);
+        BatchSolver.Report report = batch.run(input.toFile());
+        assertEquals(3, report.getPuzzles());
+        assertEquals(2, report.getSolved());
+        assertEquals(true, isSolved(readSolution(dir.resolve("corpus-1Solution.txt"), 9)));
+        assertEquals(false, Files.exists(dir.resolve("corpus-2Solution.txt")));
+        assertEquals(true, isSolved(readSolution(dir.resolve("corpus-3Solution.txt"), 16)));
+    }
+
+    @Test
+    void corpusRoundTripsAndFeedsBatch(@TempDir Path dir) throws Exception {
+        File packed = dir.resolve("all" + PuzzleCorpus.EXTENSION).toFile();
+        File[] texts = new File("Data").listFiles((d, name) -> name.endsWith(".txt"));
+        Arrays.sort(texts);
+        assertEquals(texts.length, PuzzleCorpus.convert(new File("Data"), packed));
+
+        PuzzleCorpus corpus = PuzzleCorpus.open(packed);
+        assertEquals(texts.length, corpus.size());
+        for (int k = 0; k < texts.length; k++) {
+            int[][] expected = Sudoku.readBoard(texts[k]);
+            assertEquals(expected.length, corpus.getBoardSize(k));
+            assertArrayEquals(expected, corpus.get(k));
+            assertEquals(expected.length * expected.length, corpus.cells(k).remaining());
+            assertEquals(expected[0][1], corpus.cells(k).get(1));
+        }
+        // A 9x9 array is refilled in place; another size is refused
+        int[][] reused = new int[9][9];
+        for (int k = 0; k < texts.length; k++) {
+            if (corpus.getBoardSize(k) != 9) {
+                int index = k;
+                assertThrows(IllegalArgumentException.class, () -> corpus.read(index, reused));
+                continue;
+            }
+            corpus.read(k, reused);
+            assertArrayEquals(Sudoku.readBoard(texts[k]), reused);
+        }
+
+        Path out = Files.createDirectory(dir.resolve("out"));
+        BatchSolver batch = new BatchSolver(new SudokuSolver(Engine.SAT), 2, 4, out.toFile(), false);
+        BatchSolver.Report report = batch.run(packed);
+        assertEquals(texts.length, report.getPuzzles());
+        // Only sudoku9Unsolvable has no solution
+        assertEquals(texts.length - 1, report.getSolved());
+
+        Path notCorpus = dir.resolve("bad" + PuzzleCorpus.EXTENSION);
+        Files.write(notCorpus, new byte[PuzzleCorpus.HEADER_BYTES]);
+        assertThrows(IOException.class, () -> PuzzleCorpus.open(notCorpus.toFile()));
+
+        // A write that fails halfway leaves the old corpus as it was and nothing else behind
+        int[][] offBoard = new int[4][4];
+        offBoard[0][0] = 5;
+        List<int[][]> boards = Arrays.asList(Sudoku.readBoard(texts[0]), offBoard);
+        assertThrows(IOException.class, () -> PuzzleCorpus.write(packed, boards));
+        assertEquals(texts.length, PuzzleCorpus.open(packed).size());
+        File fresh = dir.resolve("fresh" + PuzzleCorpus.EXTENSION).toFile();
+        assertThrows(IOException.class, () -> PuzzleCorpus.write(fresh, boards));
+        assertEquals(false, fresh.exists());
+        assertEquals(0, dir.toFile().list((d, name) -> name.endsWith(".tmp")).length);
+    }
+
+    @Test
+    void generatorMakesUniqueGradedPuzzles(@TempDir Path dir) throws Exception {
+        PuzzleGenerator generator = new PuzzleGenerator(9, 42, 120);
+        List<PuzzleGenerator.Puzzle> puzzles = generator.generate(4, 2);
+        // The same seed gives the same corpus whatever the thread count
+        List<PuzzleGenerator.Puzzle> again = new PuzzleGenerator(9, 42, 120).generate(4, 1);
+        for (int k = 0; k < puzzles.size(); k++) {
+            PuzzleGenerator.Puzzle puzzle = puzzles.get(k);
+            assertArrayEquals(again.get(k).getBoard(), puzzle.getBoard());
+            assertEquals(true, puzzle.getNodes() >= 120);
+            assertEquals(true, isSolved(puzzle.getSolution()));
+            int[][] board = puzzle.getBoard();
+            int givens = 0;
+            for (int i = 0; i < 9; i++) {
+                for (int j = 0; j < 9; j++) {
+                    if (board[i][j] == 0) continue;
+                    givens++;
+                    assertEquals(puzzle.getSolution()[i][j], board[i][j]);
+                }
+            }
+            assertEquals(puzzle.getGivens(), givens);
+            assertEquals(true, new SolutionCounter(9).isUnique(board));
+        }
+
+        File packed = dir.resolve("generated" + PuzzleCorpus.EXTENSION).toFile();
+        PuzzleGenerator.write(packed, puzzles);
+        BatchSolver batch = new BatchSolver(new SudokuSolver(Engine.MRV), 2, 4, dir.toFile(), false);
+        assertEquals(4, batch.run(packed).getSolved());
+
+        PuzzleGenerator.Puzzle big = new PuzzleGenerator(16, 42, 300).generate(0);
+        assertEquals(true, new SolutionCounter(16).isUnique(big.getBoard()));
+    }
+
+    @Test
+    void presolveFinishesEasyPuzzles() throws Exception {
+        // These need no guessing at all, so the logical pass alone must finish them
+        for (String file : new String[]{"Data/sudoku9Easy.txt", "Data/sudoku9OneSpot.txt", "Data/sudoku9Medium.txt"}) {
+            int[][] vals = Sudoku.readBoard(new File(file));
+            assertEquals(true, new LogicalSolver(9).propagate(vals));
+            assertEquals(true, isSolved(vals));
+        }
+    }
+
+    @Test
+    void presolveKeepsGivensAndFindsContradictions() throws Exception {
+        int[][] vals = Sudoku.readBoard(new File("Data/sudoku16ReallyHard.txt"));
+        int[][] givens = new int[16][];
+        for (int i = 0; i < 16; i++) givens[i] = vals[i].clone();
+        LogicalSolver logical = new LogicalSolver(16);
+        assertEquals(true, logical.propagate(vals));
+        for (int i = 0; i < 16; i++) {
+            for (int j = 0; j < 16; j++) {
+                if (givens[i][j] != 0) assertEquals(givens[i][j], vals[i][j]);
+            }
+        }
+        assertEquals(false, new LogicalSolver(9).propagate(Sudoku.readBoard(new File("Data/sudoku9Unsolvable.txt"))));
+    }
+
+    @Test
+    void solve16ReallyHardPresolved() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku16ReallyHard.txt", Engine.BITMASK, true);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solve25NewPresolved() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku25New.txt", Engine.MRV, true);
+        assertEquals(true, result.isSolved());
+        assertEquals(true, isSolved(result.getBoard()));
+    }
+
+    @Test
+    void solve9UnsolvablePresolved() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Unsolvable.txt", Engine.BACKTRACKING, true);
+        assertEquals(false, result.isSolved());
+    }
+
+    @Test
+    void countSolutionsClassifiesBoards() throws Exception {
+        SolutionCounter counter = new SolutionCounter(9);
+        int[][] hardest = Sudoku.readBoard(new File("Data/sudoku9Hardest.txt"));
+        assertEquals(1, counter.count(hardest, 2));
+        assertEquals(true, isSolved(hardest));
+        assertEquals(0, counter.count(Sudoku.readBoard(new File("Data/sudoku9Unsolvable.txt")), 2));
+        assertEquals(2, counter.count(Sudoku.readBoard(new File("Data/sudoku9Empty.txt")), 2));
+        assertEquals(true, counter.isUnique(Sudoku.readBoard(new File("Data/sudoku9VeryHard.txt"))));
+    }
+
+    @Test
+    void countSolutionsInParallel() throws Exception {
+        SolutionCounter counter = new SolutionCounter(25, ForkJoinPool.commonPool(), 2);
+        int[][] vals = Sudoku.readBoard(new File("Data/sudokuEmpty25.txt"));
+        assertEquals(500, counter.count(vals, 500));
+        assertEquals(true, isSolved(vals));
+        assertEquals(1, new SolutionCounter(25, ForkJoinPool.commonPool(), 2).count(Sudoku.readBoard(new File("Data/sudoku25Killer.txt")), 2));
+    }
+
+    @Test
+    void collectSearchStats() {
+        SolveResult result = Sudoku.solveFromFile("Data/sudoku9Hardest.txt", Engine.MRV, false, true);
+        assertEquals(true, isSolved(result.getBoard()));
+        SearchStats stats = result.getStats();
+        assertTrue(stats.getNodes() > 0);
+        assertTrue(stats.getBacktracks() > 0);
+        assertTrue(stats.getMaxDepth() > 0 && stats.getMaxDepth() <= 81);
+        assertTrue(stats.getTotalNanos() > 0);
+        assertEquals(null, Sudoku.solveFromFile("Data/sudoku9Hardest.txt", Engine.MRV).getStats());
+
+        SearchStats presolved = Sudoku.solveFromFile("Data/sudoku9Medium.txt", Engine.BITMASK, true, true).getStats();
+        assertTrue(presolved.getPropagationHits() > 0);
+        assertEquals(0, presolved.getNodes());
+    }
+
+    @Test
+    void cacheAnswersSymmetricVariants() throws Exception {
+        SolutionCache cache = new SolutionCache(16);
+        SudokuSolver solver = new SudokuSolver(Engine.MRV, false, false, cache);
+        int[][] original = Sudoku.readBoard(new File("Data/sudoku9Hardest.txt"));
+        assertEquals(true, solver.solve(original));
+
+        // Relabel, swap the first and last band, swap two rows inside a band, then transpose
+        int[][] puzzle = Sudoku.readBoard(new File("Data/sudoku9Hardest.txt"));
+        int[] rows = {7, 6, 8, 3, 4, 5, 0, 1, 2};
+        int[][] variant = new int[9][9];
+        for (int i = 0; i < 9; i++) {
+            for (int j = 0; j < 9; j++) {
+                int v = puzzle[rows[i]][j];
+                variant[j][i] = v == 0 ? 0 : v % 9 + 1;
+            }
+        }
+        int[][] givens = new int[9][];
+        for (int i = 0; i < 9; i++) givens[i] = variant[i].clone();
+
+        assertEquals(true, solver.solve(variant));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.size());
+        assertEquals(true, isSolved(variant));
+        for (int i = 0; i < 9; i++) {
+            for (int j = 0; j < 9; j++) {
+                if (givens[i][j] != 0) assertEquals(givens[i][j], variant[i][j]);
+            }
+        }
+    }
+
+    @Test
+    void cacheEvictsAndPersists(@TempDir Path dir) throws Exception {
+        SolutionCache cache = new SolutionCache(1, dir.toFile());
+        SudokuSolver solver = new SudokuSolver(Engine.MRV, false, false, cache);
+        assertEquals(true, solver.solve(Sudoku.readBoard(new File("Data/sudoku9Hard.txt"))));
+        assertEquals(true, solver.solve(Sudoku.readBoard(new File("Data/sudoku16ReallyHard.txt"))));
+        assertEquals(1, cache.size());
+
+        // A fresh cache over the same directory still knows both puzzles
+        SolutionCache reopened = new SolutionCache(SolutionCache.DEFAULT_CAPACITY, dir.toFile());
+        int[][] solution = reopened.lookup(Sudoku.readBoard(new File("Data/sudoku9Hard.txt")));
+        assertEquals(true, isSolved(solution));
+        assertEquals(true, isSolved(reopened.lookup(Sudoku.readBoard(new File("Data/sudoku16ReallyHard.txt")))));
+        assertEquals(null, reopened.lookup(Sudoku.readBoard(new File("Data/sudoku9Medium.txt"))));
+        assertEquals(2, reopened.getHits());
+    }
+
+    @Test
+    void sessionTracksCandidates() throws Exception {
+        SudokuSession session = new SudokuSession(Sudoku.readBoard(new File("Data/sudoku9Medium.txt")));
+        int[] given = firstGiven(session);
+        assertEquals(false, session.place(given[0], given[1], 1));
+        int i = 0, j = 0;
+        while (session.isGiven(i, j)) j++;
+        int[] before = session.getCandidates(i, j);
+        assertTrue(before.length > 0);
+        int v = before[0];
+        assertEquals(true, session.place(i, j, v));
+        assertEquals(0, session.getCandidates(i, j).length);
+        for (int k = 0; k < 9; k++) {
+            if (k != j && !session.isGiven(i, k)) {
+                assertEquals(0, session.getCandidateMask(i, k) & 1L << (v - 1));
+                assertEquals(false, session.place(i, k, v));
+            }
+        }
+        assertEquals(true, session.clear(i, j));
+        assertArrayEquals(before, session.getCandidates(i, j));
+    }
+
+    @Test
+    void sessionCachesSolvability() throws Exception {
+        SudokuSession session = new SudokuSession(Sudoku.readBoard(new File("Data/sudoku9Hard.txt")));
+        assertEquals(true, session.isSolvable());
+        assertEquals(true, session.isSolvable());
+        assertEquals(1, session.getSolves());
+
+        // Following the known solution never needs another search
+        int[][] solution = session.getSolution();
+        int filledIn = 0;
+        for (int i = 0; i < 9 && filledIn < 10; i++) {
+            for (int j = 0; j < 9 && filledIn < 10; j++) {
+                if (session.get(i, j) != 0) continue;
+                assertEquals(true, session.place(i, j, solution[i][j]));
+                assertEquals(true, session.isSolvable());
+                filledIn++;
+            }
+        }
+        assertEquals(1, session.getSolves());
+
+        // A wrong digit that still fits its row, column and partition
+        int wi = -1, wj = -1, wrong = 0;
+        for (int i = 0; i < 9 && wi < 0; i++) {
+            for (int j = 0; j < 9 && wi < 0; j++) {
+                long mask = session.getCandidateMask(i, j) & ~(1L << (solution[i][j] - 1));
+                if (mask != 0) {
+                    wi = i;
+                    wj = j;
+                    wrong = Long.numberOfTrailingZeros(mask) + 1;
+                }
+            }
+        }
+        assertTrue(wi >= 0);
+        assertEquals(true, session.place(wi, wj, wrong));
+        boolean solvable = session.isSolvable();
+        assertEquals(2, session.getSolves());
+        if (!solvable) {
+            assertEquals(null, session.getSolution());
+        }
+        assertEquals(true, session.clear(wi, wj));
+        assertEquals(true, session.isSolvable());
+        assertEquals(true, isSolved(session.getSolution()));
+        assertEquals(false, session.clear(firstGiven(session)[0], firstGiven(session)[1]));
+    }
+
+    @Test
+    void solveServerOnLocalhost() throws Exception {
+        SolveServer server = new SolveServer(0, Engine.MRV, 1);
+        server.start();
+        try {
+            String puzzle = new String(Files.readAllBytes(Paths.get("Data/sudoku9Hardest.txt")), StandardCharsets.UTF_8);
+            ExecutorService clients = Executors.newFixedThreadPool(4);
+            List<Future<String>> replies = new ArrayList<>();
+            for (int k = 0; k < 4; k++) {
+                String engine = k % 2 == 0 ? "" : "?engine=DANCING_LINKS";
+                replies.add(clients.submit(() -> post(server.getPort(), engine, puzzle, 200)));
+            }
+            for (Future<String> reply : replies) {
+                Scanner input = new Scanner(reply.get());
+                assertEquals("solved", input.next());
+                assertEquals(true, input.nextBoolean());
+                assertEquals("wait-nanos", input.next());
+                assertTrue(input.nextLong() >= 0);
+                assertEquals("solve-nanos", input.next());
+                assertTrue(input.nextLong() > 0);
+                assertEquals(true, isSolved(Sudoku.readBoard(input)));
+            }
+            clients.shutdown();
+
+            assertTrue(post(server.getPort(), "", "9\n1 2 3", 400).startsWith("Bad request"));
+            assertTrue(post(server.getPort(), "?engine=NONE", puzzle, 400).startsWith("Bad request"));
+            assertTrue(post(server.getPort(), "", emptyBoard(10), 400).startsWith("Bad request"));
+            assertTrue(post(server.getPort(), "", emptyBoard(81), 400).startsWith("Bad request"));
+            String unsolvable = new String(Files.readAllBytes(Paths.get("Data/sudoku9Unsolvable.txt")), StandardCharsets.UTF_8);
+            assertTrue(post(server.getPort(), "", unsolvable, 200).startsWith("solved false"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static String post(int port, String query, String body, int expectedStatus) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/solve" + query).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(expectedStatus, connection.getResponseCode());
+        InputStream in = expectedStatus == 200 ? connection.getInputStream() : connection.getErrorStream();
+        try (Scanner reply = new Scanner(in, "UTF-8")) {
+            return reply.useDelimiter("\\A").next();
+        }
+    }
+
+    private static String emptyBoard(int n) {
+        StringBuilder board = new StringBuilder().append(n).append('\n');
+        for (int x = 0; x < n * n; x++) {
+            board.append(x % n == n - 1 ? "0\n" : "0 ");
+        }
+        return board.toString();
+    }
+
+    private static int[] firstGiven(SudokuSession session) {
+        for (int i = 0; i < 9; i++) {
+            for (int j = 0; j < 9; j++) {
+                if (session.isGiven(i, j)) return new int[]{i, j};
+            }
+        }
+        return null;
     }
 
     @Test
@@ -100,6 +985,24 @@ class SudokuTest {
         }
     }
 
+    // Solution files are the rows without the board size in front
+    int[][] readSolution(Path file, int boardSize) throws IOException {
+        return Sudoku.readBoard(new Scanner(boardSize + " " + new String(Files.readAllBytes(file))));
+    }
+
+    // A valid solved board with every fifth cell blanked out
+    int[][] patternBoard(int boardSize){
+        int partitionSize = (int) Math.sqrt(boardSize);
+        int[][] vals = new int[boardSize][boardSize];
+        for (int i = 0; i < boardSize; i++){
+            for (int j = 0; j < boardSize; j++){
+                vals[i][j] = (i % partitionSize * partitionSize + i / partitionSize + j) % boardSize + 1;
+                if ((i * 7 + j * 3) % 5 == 0) vals[i][j] = 0;
+            }
+        }
+        return vals;
+    }
+
     boolean isSolved(int[][] vals){
         int boardSize = vals.length;
         int partitionSize = (int) Math.sqrt(vals.length);